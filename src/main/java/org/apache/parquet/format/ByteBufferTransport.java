@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * TTransport reading from and writing to a ByteBuffer.
+ * The position of the buffer is advanced by exactly the number of bytes consumed.
+ * Heap buffers expose their backing array so that TCompactProtocol can decode in place.
+ */
+class ByteBufferTransport extends TTransport {
+
+  private ByteBuffer buffer;
+
+  ByteBufferTransport(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * rebinds this transport to another buffer
+   * @param buffer the buffer to read from or write to
+   */
+  void setBuffer(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return true;
+  }
+
+  @Override
+  public void open() throws TTransportException {
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public int read(byte[] buf, int off, int len) throws TTransportException {
+    int remaining = buffer.remaining();
+    if (remaining == 0) {
+      throw new TTransportException(TTransportException.END_OF_FILE, "no more bytes in buffer");
+    }
+    int n = Math.min(len, remaining);
+    buffer.get(buf, off, n);
+    return n;
+  }
+
+  @Override
+  public void write(byte[] buf, int off, int len) throws TTransportException {
+    try {
+      buffer.put(buf, off, len);
+    } catch (BufferOverflowException e) {
+      throw new TTransportException("not enough space in buffer to write " + len + " bytes", e);
+    }
+  }
+
+  @Override
+  public byte[] getBuffer() {
+    return buffer.hasArray() ? buffer.array() : null;
+  }
+
+  @Override
+  public int getBufferPosition() {
+    return buffer.hasArray() ? buffer.arrayOffset() + buffer.position() : 0;
+  }
+
+  @Override
+  public int getBytesRemainingInBuffer() {
+    return buffer.hasArray() ? buffer.remaining() : -1;
+  }
+
+  @Override
+  public void consumeBuffer(int len) {
+    buffer.position(buffer.position() + len);
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The columns to decode when reading the FileMetaData.
+ * The ColumnChunks of the other columns are skipped in each RowGroup,
+ * the columns of the resulting RowGroups contain only the projected ColumnChunks in the file order.
+ *
+ * @see Util#readFileMetaData(java.io.InputStream, ColumnProjection)
+ */
+public abstract class ColumnProjection {
+
+  /**
+   * @param leafIndexes the indexes of the projected columns in RowGroup.columns
+   * @return the projection
+   */
+  public static ColumnProjection leafIndexes(int... leafIndexes) {
+    final BitSet projected = new BitSet();
+    for (int leafIndex : leafIndexes) {
+      projected.set(leafIndex);
+    }
+    return new ColumnProjection() {
+      @Override
+      BitSet resolve(List<SchemaElement> schema) {
+        return projected;
+      }
+
+      @Override
+      public String toString() {
+        return "ColumnProjection(leafIndexes: " + projected + ")";
+      }
+    };
+  }
+
+  /**
+   * A leaf column is projected if one of the paths is its path_in_schema or the path of one of its parents.
+   * Paths absent from the schema are ignored.
+   * @param paths the projected paths (without the root)
+   * @return the projection
+   */
+  public static ColumnProjection paths(final Collection<List<String>> paths) {
+    return new ColumnProjection() {
+      @Override
+      BitSet resolve(List<SchemaElement> schema) {
+        if (schema == null) {
+          return null;
+        }
+        BitSet projected = new BitSet();
+        List<List<String>> leafPaths = leafPaths(schema);
+        for (int i = 0; i < leafPaths.size(); i++) {
+          List<String> leafPath = leafPaths.get(i);
+          for (List<String> path : paths) {
+            if (path.size() <= leafPath.size() && leafPath.subList(0, path.size()).equals(path)) {
+              projected.set(i);
+              break;
+            }
+          }
+        }
+        return projected;
+      }
+
+      @Override
+      public String toString() {
+        return "ColumnProjection(paths: " + paths + ")";
+      }
+    };
+  }
+
+  ColumnProjection() {
+  }
+
+  /**
+   * @param schema the schema of the file, null if not known yet
+   * @return the indexes of the projected leaves or null if they can not be determined without the schema
+   */
+  abstract BitSet resolve(List<SchemaElement> schema);
+
+  /**
+   * @param schema the flattened schema, depth first, starting with the root
+   * @return the paths of the leaves in schema order (which is the order of RowGroup.columns)
+   */
+  static List<List<String>> leafPaths(List<SchemaElement> schema) {
+    List<List<String>> leafPaths = new ArrayList<List<String>>();
+    if (!schema.isEmpty()) {
+      addLeafPaths(schema, 0, new ArrayList<String>(), leafPaths);
+    }
+    return leafPaths;
+  }
+
+  /**
+   * @return the index of the element following the children of the group at index
+   */
+  private static int addLeafPaths(List<SchemaElement> schema, int index, List<String> parentPath, List<List<String>> leafPaths) {
+    int childCount = schema.get(index).getNum_children();
+    int next = index + 1;
+    for (int i = 0; i < childCount; i++) {
+      if (next >= schema.size()) {
+        throw new IllegalArgumentException("invalid schema: missing children for " + schema.get(index).getName());
+      }
+      SchemaElement child = schema.get(next);
+      List<String> path = new ArrayList<String>(parentPath);
+      path.add(child.getName());
+      if (child.isSetNum_children()) {
+        next = addLeafPaths(schema, next, path, leafPaths);
+      } else {
+        leafPaths.add(path);
+        ++next;
+      }
+    }
+    return next;
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TIOStreamTransport;
+
+/**
+ * Writes a FileMetaData one RowGroup at a time so that the row groups of a file being written
+ * do not need to be kept until the footer is written.
+ *
+ * The compact protocol needs the size of the row_groups list before its first element:
+ * <ul>
+ * <li>when the number of row groups is declared up front, they are written to the output as they are added
+ * and num_rows follows the row groups</li>
+ * <li>otherwise they are serialized to a buffer and the footer is written when finished,
+ * byte for byte identical to {@link Util#writeFileMetaData(FileMetaData, OutputStream)}.
+ * The buffer is either a file (bounded memory) or the heap (a fraction of the size of the RowGroup objects,
+ * but growing with the number of row groups)</li>
+ * </ul>
+ * num_rows is the sum of the num_rows of the row groups unless it is declared up front with the number of row groups,
+ * in which case the footer has the same layout as the one written by Util.
+ *
+ * This class is not thread safe.
+ */
+public class FileMetaDataWriter {
+
+  private static final TStruct STRUCT_DESC = new TStruct("FileMetaData");
+  private static final TField VERSION_FIELD_DESC = new TField("version", TType.I32, (short) 1);
+  private static final TField SCHEMA_FIELD_DESC = new TField("schema", TType.LIST, (short) 2);
+  private static final TField NUM_ROWS_FIELD_DESC = new TField("num_rows", TType.I64, (short) 3);
+  private static final TField ROW_GROUPS_FIELD_DESC = new TField("row_groups", TType.LIST, (short) 4);
+  private static final TField KEY_VALUE_METADATA_FIELD_DESC = new TField("key_value_metadata", TType.LIST, (short) 5);
+  private static final TField CREATED_BY_FIELD_DESC = new TField("created_by", TType.STRING, (short) 6);
+
+  private final OutputStream out;
+  private final TProtocol protocol;
+  private final int version;
+  private final List<SchemaElement> schema;
+  // -1 when the row groups are buffered
+  private final int declaredRowGroupCount;
+  // -1 when num_rows is the sum of the row groups
+  private final long declaredNumRows;
+  // a ByteArrayOutputStream or the stream writing to the spill file, null when the row groups are written directly
+  private final OutputStream buffer;
+  private final File spill;
+  private final TProtocol bufferProtocol;
+
+  private int rowGroupCount;
+  private long numRows;
+  private boolean finished;
+
+  /**
+   * buffers the serialized row groups in memory until {@link #finish(List, String)}
+   * @param out the stream to write the footer to
+   * @param version the version of the file format
+   * @param schema the schema of the file
+   */
+  public FileMetaDataWriter(OutputStream out, int version, List<SchemaElement> schema) {
+    this(-1, -1, out, version, schema, new ByteArrayOutputStream(), null);
+  }
+
+  /**
+   * buffers the serialized row groups in a file until {@link #finish(List, String)}
+   * @param out the stream to write the footer to
+   * @param version the version of the file format
+   * @param schema the schema of the file
+   * @param spill the file buffering the row groups, overwritten. It is not deleted.
+   * @throws IOException if the file can not be created
+   */
+  public FileMetaDataWriter(OutputStream out, int version, List<SchemaElement> schema, File spill) throws IOException {
+    this(-1, -1, out, version, schema, new BufferedOutputStream(new FileOutputStream(checkSpill(spill))), spill);
+  }
+
+  /**
+   * writes the row groups to the output as they are added
+   * @param out the stream to write the footer to
+   * @param version the version of the file format
+   * @param schema the schema of the file
+   * @param rowGroupCount the number of row groups that will be added
+   * @throws IOException if the beginning of the footer can not be written
+   */
+  public FileMetaDataWriter(OutputStream out, int version, List<SchemaElement> schema, int rowGroupCount) throws IOException {
+    this(checkRowGroupCount(rowGroupCount), -1, out, version, schema, null, null);
+    writeRowGroupsBegin();
+  }
+
+  /**
+   * writes the row groups to the output as they are added, num_rows is written as given
+   * @param out the stream to write the footer to
+   * @param version the version of the file format
+   * @param schema the schema of the file
+   * @param rowGroupCount the number of row groups that will be added
+   * @param numRows the total number of rows in the file
+   * @throws IOException if the beginning of the footer can not be written
+   */
+  public FileMetaDataWriter(OutputStream out, int version, List<SchemaElement> schema, int rowGroupCount, long numRows) throws IOException {
+    this(checkRowGroupCount(rowGroupCount), checkNumRows(numRows), out, version, schema, null, null);
+    writeRowGroupsBegin();
+  }
+
+  private FileMetaDataWriter(int declaredRowGroupCount, long declaredNumRows, OutputStream out, int version, List<SchemaElement> schema,
+      OutputStream buffer, File spill) {
+    if (schema == null) {
+      throw new NullPointerException("schema");
+    }
+    this.out = out;
+    this.protocol = Util.protocol(new TIOStreamTransport(out));
+    this.version = version;
+    this.schema = schema;
+    this.declaredRowGroupCount = declaredRowGroupCount;
+    this.declaredNumRows = declaredNumRows;
+    this.buffer = buffer;
+    this.spill = spill;
+    this.bufferProtocol = buffer == null ? null : Util.protocol(new TIOStreamTransport(buffer));
+  }
+
+  private static File checkSpill(File spill) {
+    if (spill == null) {
+      throw new NullPointerException("spill");
+    }
+    return spill;
+  }
+
+  private static int checkRowGroupCount(int rowGroupCount) {
+    if (rowGroupCount < 0) {
+      throw new IllegalArgumentException("invalid row group count: " + rowGroupCount);
+    }
+    return rowGroupCount;
+  }
+
+  private static long checkNumRows(long numRows) {
+    if (numRows < 0) {
+      throw new IllegalArgumentException("invalid number of rows: " + numRows);
+    }
+    return numRows;
+  }
+
+  private void writeRowGroupsBegin() throws IOException {
+    try {
+      writeHeader(declaredNumRows >= 0);
+      protocol.writeFieldBegin(ROW_GROUPS_FIELD_DESC);
+      protocol.writeListBegin(new TList(TType.STRUCT, declaredRowGroupCount));
+    } catch (TException e) {
+      throw new IOException("can not write FileMetaData", e);
+    }
+  }
+
+  /**
+   * writes or buffers the next row group. The row group is not retained.
+   * @param rowGroup the row group
+   * @throws IOException if the row group is invalid or can not be written
+   */
+  public void addRowGroup(RowGroup rowGroup) throws IOException {
+    checkCanAddRowGroup();
+    Util.write(rowGroup, buffer == null ? protocol : bufferProtocol);
+    ++rowGroupCount;
+    numRows += rowGroup.getNum_rows();
+  }
+
+  /**
+   * copies a serialized row group verbatim. Its rows are not counted: num_rows must be declared.
+   * @param rowGroup the compact protocol encoding of a RowGroup
+   * @throws IOException if the row group can not be written
+   */
+  void addSerializedRowGroup(ByteBuffer rowGroup) throws IOException {
+    checkCanAddRowGroup();
+    if (declaredNumRows < 0) {
+      throw new IllegalStateException("num_rows must be declared to add serialized row groups");
+    }
+    OutputStream to = buffer == null ? out : buffer;
+    if (rowGroup.hasArray()) {
+      to.write(rowGroup.array(), rowGroup.arrayOffset() + rowGroup.position(), rowGroup.remaining());
+    } else {
+      byte[] bytes = new byte[rowGroup.remaining()];
+      rowGroup.duplicate().get(bytes);
+      to.write(bytes);
+    }
+    ++rowGroupCount;
+  }
+
+  private void checkCanAddRowGroup() throws IOException {
+    checkNotFinished();
+    if (declaredRowGroupCount >= 0 && rowGroupCount == declaredRowGroupCount) {
+      throw new IOException("can not add more than the " + declaredRowGroupCount + " declared row groups");
+    }
+  }
+
+  /**
+   * writes the end of the footer
+   * @param keyValueMetadata the key_value_metadata, null if not set
+   * @param createdBy the created_by, null if not set
+   * @throws IOException if the number of row groups is not the one declared or the footer can not be written
+   */
+  public void finish(List<KeyValue> keyValueMetadata, String createdBy) throws IOException {
+    checkNotFinished();
+    finished = true;
+    if (spill != null) {
+      buffer.close();
+    }
+    try {
+      if (buffer == null) {
+        if (rowGroupCount != declaredRowGroupCount) {
+          throw new IOException("declared " + declaredRowGroupCount + " row groups but added " + rowGroupCount);
+        }
+        protocol.writeListEnd();
+        protocol.writeFieldEnd();
+        if (declaredNumRows < 0) {
+          writeNumRows();
+        }
+      } else {
+        writeHeader(true);
+        protocol.writeFieldBegin(ROW_GROUPS_FIELD_DESC);
+        protocol.writeListBegin(new TList(TType.STRUCT, rowGroupCount));
+        // the compact protocol encodes a struct the same way whether it is nested or not
+        if (spill == null) {
+          ((ByteArrayOutputStream) buffer).writeTo(out);
+        } else {
+          copy(spill, out);
+        }
+        protocol.writeListEnd();
+        protocol.writeFieldEnd();
+      }
+      if (keyValueMetadata != null) {
+        protocol.writeFieldBegin(KEY_VALUE_METADATA_FIELD_DESC);
+        protocol.writeListBegin(new TList(TType.STRUCT, keyValueMetadata.size()));
+        for (KeyValue keyValue : keyValueMetadata) {
+          keyValue.write(protocol);
+        }
+        protocol.writeListEnd();
+        protocol.writeFieldEnd();
+      }
+      if (createdBy != null) {
+        protocol.writeFieldBegin(CREATED_BY_FIELD_DESC);
+        protocol.writeString(createdBy);
+        protocol.writeFieldEnd();
+      }
+      protocol.writeFieldStop();
+      protocol.writeStructEnd();
+    } catch (TException e) {
+      throw new IOException("can not write FileMetaData", e);
+    }
+  }
+
+  private static void copy(File from, OutputStream to) throws IOException {
+    InputStream in = new FileInputStream(from);
+    try {
+      byte[] bytes = new byte[64 * 1024];
+      for (int read = in.read(bytes); read >= 0; read = in.read(bytes)) {
+        to.write(bytes, 0, read);
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  private void writeHeader(boolean withNumRows) throws TException {
+    protocol.writeStructBegin(STRUCT_DESC);
+    protocol.writeFieldBegin(VERSION_FIELD_DESC);
+    protocol.writeI32(version);
+    protocol.writeFieldEnd();
+    protocol.writeFieldBegin(SCHEMA_FIELD_DESC);
+    protocol.writeListBegin(new TList(TType.STRUCT, schema.size()));
+    for (SchemaElement element : schema) {
+      element.write(protocol);
+    }
+    protocol.writeListEnd();
+    protocol.writeFieldEnd();
+    if (withNumRows) {
+      writeNumRows();
+    }
+  }
+
+  private void writeNumRows() throws TException {
+    protocol.writeFieldBegin(NUM_ROWS_FIELD_DESC);
+    protocol.writeI64(declaredNumRows >= 0 ? declaredNumRows : numRows);
+    protocol.writeFieldEnd();
+  }
+
+  private void checkNotFinished() {
+    if (finished) {
+      throw new IllegalStateException("the footer is already finished");
+    }
+  }
+
+  /**
+   * @return the number of row groups added so far
+   */
+  public int getRowGroupCount() {
+    return rowGroupCount;
+  }
+
+  /**
+   * @return the total number of rows of the row groups added so far (serialized row groups are not counted)
+   */
+  public long getNumRows() {
+    return numRows;
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Caches the FileMetaData of files that are opened repeatedly.
+ * Files are identified by their path, length and modification time so that a rewritten file is never served a stale footer.
+ * The cache is bounded by the total weight of the footers it holds, the number of bytes of heap they retain:
+ * an estimate of the size of the decoded footers, the length of the serialized ones.
+ * The least recently used footers are evicted first.
+ * Footers heavier than the whole budget are not cached.
+ *
+ * Footers are kept either decoded or as their serialized form (optionally compressed), see {@link Mode}.
+ * Concurrent misses on the same file may read its footer more than once.
+ *
+ * This class is thread safe.
+ */
+public class FooterCache {
+
+  /**
+   * how the footers are kept in the cache
+   */
+  public static enum Mode {
+    /**
+     * the decoded FileMetaData is kept, hits are free but the FileMetaData instances
+     * are shared between all the callers and must not be modified.
+     * The weight is an estimate of the heap retained by the decoded footer, typically 5 to 20 times its serialized size.
+     */
+    DECODED,
+    /**
+     * the serialized footer is kept and decoded on every hit, each caller gets its own FileMetaData.
+     * The weight is the serialized size.
+     */
+    SERIALIZED,
+    /**
+     * the serialized footer is kept deflated and decoded on every hit, each caller gets its own FileMetaData.
+     * The weight is the compressed size.
+     */
+    COMPRESSED
+  }
+
+  /**
+   * identifies a version of a file
+   */
+  private static final class Key {
+    private final String path;
+    private final long length;
+    private final long modificationTime;
+
+    Key(String path, long length, long modificationTime) {
+      this.path = path;
+      this.length = length;
+      this.modificationTime = modificationTime;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return path.equals(other.path) && length == other.length && modificationTime == other.modificationTime;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = path.hashCode();
+      hash = 31 * hash + (int) (length ^ (length >>> 32));
+      hash = 31 * hash + (int) (modificationTime ^ (modificationTime >>> 32));
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return path + "(" + length + " bytes, modified " + modificationTime + ")";
+    }
+  }
+
+  private static final class Entry {
+    // the decoded footer in DECODED mode
+    private final FileMetaData fileMetaData;
+    // the (compressed) serialized footer in the other modes
+    private final byte[] bytes;
+    private final long weight;
+
+    Entry(FileMetaData fileMetaData, long weight) {
+      this.fileMetaData = fileMetaData;
+      this.bytes = null;
+      this.weight = weight;
+    }
+
+    Entry(byte[] bytes) {
+      this.fileMetaData = null;
+      this.bytes = bytes;
+      this.weight = bytes.length;
+    }
+  }
+
+  private final long maxWeight;
+  private final FooterLoader loader;
+  private final Mode mode;
+
+  // access ordered: the eldest entry is the least recently used
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+  private long weight;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  /**
+   * @param maxWeight the maximum total weight in bytes of the cached footers, see {@link Mode#DECODED}
+   */
+  public FooterCache(long maxWeight) {
+    this(maxWeight, new FooterLoader(), Mode.DECODED);
+  }
+
+  /**
+   * @param maxWeight the maximum total weight in bytes of the cached footers, see {@link Mode#DECODED}
+   * @param loader reads the footers on a miss
+   */
+  public FooterCache(long maxWeight, FooterLoader loader) {
+    this(maxWeight, loader, Mode.DECODED);
+  }
+
+  /**
+   * @param maxWeight the maximum total weight in bytes of the cached footers, see {@link Mode}
+   * @param loader reads the footers on a miss
+   * @param mode how the footers are kept
+   */
+  public FooterCache(long maxWeight, FooterLoader loader, Mode mode) {
+    if (maxWeight < 0) {
+      throw new IllegalArgumentException("invalid max weight: " + maxWeight);
+    }
+    this.maxWeight = maxWeight;
+    this.loader = loader;
+    this.mode = mode;
+  }
+
+  /**
+   * @param path the path of the file, it also identifies the dataset (its parent) to learn the footer sizes
+   * @param modificationTime the modification time of the file
+   * @param file the parquet file
+   * @return the cached metadata or the one read from the file
+   * @throws IOException if the footer can not be read
+   */
+  public FileMetaData readFileMetaData(String path, long modificationTime, final FileChannel file) throws IOException {
+    return readFileMetaData(path, modificationTime, new FooterLoader.Input() {
+      @Override
+      public long length() throws IOException {
+        return file.size();
+      }
+
+      @Override
+      public void readFully(long position, ByteBuffer buffer) throws IOException {
+        Util.readFully(file, buffer, position);
+      }
+    });
+  }
+
+  /**
+   * @param path the path of the file, it also identifies the dataset (its parent) to learn the footer sizes
+   * @param modificationTime the modification time of the file
+   * @param file the parquet file
+   * @return the cached metadata or the one read from the file
+   * @throws IOException if the footer can not be read
+   */
+  public FileMetaData readFileMetaData(String path, long modificationTime, FooterLoader.Input file) throws IOException {
+    Key key = new Key(path, file.length(), modificationTime);
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry != null) {
+        ++hitCount;
+      } else {
+        ++missCount;
+      }
+    }
+    if (entry != null) {
+      return decode(entry);
+    }
+    ByteBuffer footer = loader.readFooter(dataset(path), file);
+    ByteBuffer serialized = footer.duplicate();
+    // decoded before being cached so that a corrupted footer is not cached
+    FileMetaData fileMetaData = Util.readFileMetaData(footer);
+    switch (mode) {
+    case DECODED:
+      put(key, new Entry(fileMetaData, HeapSize.of(fileMetaData)));
+      break;
+    case SERIALIZED:
+      byte[] bytes = new byte[serialized.remaining()];
+      serialized.get(bytes);
+      put(key, new Entry(bytes));
+      break;
+    case COMPRESSED:
+      put(key, new Entry(deflate(serialized)));
+      break;
+    default:
+      throw new IllegalStateException("unknown mode " + mode);
+    }
+    return fileMetaData;
+  }
+
+  private FileMetaData decode(Entry entry) throws IOException {
+    if (entry.fileMetaData != null) {
+      return entry.fileMetaData;
+    }
+    if (mode == Mode.COMPRESSED) {
+      return Util.readFileMetaData(new InflaterInputStream(new ByteArrayInputStream(entry.bytes)));
+    }
+    return Util.readFileMetaData(ByteBuffer.wrap(entry.bytes));
+  }
+
+  private static byte[] deflate(ByteBuffer footer) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(footer.remaining() / 4);
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater);
+      if (footer.hasArray()) {
+        out.write(footer.array(), footer.arrayOffset() + footer.position(), footer.remaining());
+      } else {
+        byte[] bytes = new byte[footer.remaining()];
+        footer.get(bytes);
+        out.write(bytes);
+      }
+      out.close();
+    } finally {
+      deflater.end();
+    }
+    return compressed.toByteArray();
+  }
+
+  private synchronized void put(Key key, Entry entry) {
+    if (entry.weight > maxWeight) {
+      return;
+    }
+    Entry previous = entries.put(key, entry);
+    if (previous != null) {
+      weight -= previous.weight;
+    }
+    weight += entry.weight;
+    Iterator<Entry> eldest = entries.values().iterator();
+    while (weight > maxWeight) {
+      Entry evicted = eldest.next();
+      eldest.remove();
+      weight -= evicted.weight;
+      ++evictionCount;
+    }
+  }
+
+  private static String dataset(String path) {
+    int lastSlash = path.lastIndexOf('/');
+    return lastSlash < 0 ? "" : path.substring(0, lastSlash);
+  }
+
+  /**
+   * removes all the footers from the cache
+   */
+  public synchronized void invalidateAll() {
+    entries.clear();
+    weight = 0;
+  }
+
+  /**
+   * @return the number of cached footers
+   */
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  /**
+   * @return the total weight in bytes of the cached footers, see {@link Mode}
+   */
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  /**
+   * @return the number of footers found in the cache
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of footers read from the files
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of footers evicted to stay within the budget
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "FooterCache(" + mode + ", " + entries.size() + " footers, " + weight + "/" + maxWeight + " bytes, "
+        + hitCount + " hits, " + missCount + " misses, " + evictionCount + " evictions)";
+  }
+}
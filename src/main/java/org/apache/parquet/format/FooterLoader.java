@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import static org.apache.parquet.format.Util.FOOTER_TAIL_LENGTH;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads footers with a single read in the common case.
+ * A speculative tail of the file is read containing the footer length, the magic number and
+ * hopefully the footer itself. A second read is issued only for the part of the footer that did not fit.
+ * The size of the speculative tail is learnt per dataset from the footer sizes recently seen.
+ *
+ * This class is thread safe.
+ */
+public class FooterLoader {
+
+  /**
+   * positional reads in a file
+   */
+  public static interface Input {
+
+    /**
+     * @return the length of the file
+     * @throws IOException
+     */
+    long length() throws IOException;
+
+    /**
+     * fills the remaining space of the buffer with the bytes of the file starting at position
+     * @param position the position in the file
+     * @param buffer the buffer to fill
+     * @throws IOException
+     */
+    void readFully(long position, ByteBuffer buffer) throws IOException;
+  }
+
+  public static final int DEFAULT_INITIAL_TAIL_SIZE = 64 * 1024;
+  public static final int DEFAULT_MAX_TAIL_SIZE = 16 * 1024 * 1024;
+
+  private static final int RECENT_FOOTERS = 16;
+  private static final int MAX_DATASETS = 1024;
+  private static final int TAIL_SIZE_ROUNDING = 1024;
+
+  /**
+   * the lengths (tail included) of the footers recently seen for a dataset
+   */
+  private static final class RecentFooters {
+    private final int[] lengths = new int[RECENT_FOOTERS];
+    private int next;
+
+    void add(int length) {
+      lengths[next] = length;
+      next = (next + 1) % RECENT_FOOTERS;
+    }
+
+    int max() {
+      int max = 0;
+      for (int length : lengths) {
+        max = Math.max(max, length);
+      }
+      return max;
+    }
+  }
+
+  private final int initialTailSize;
+  private final int maxTailSize;
+  private final Map<String, RecentFooters> datasets = new LinkedHashMap<String, RecentFooters>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, RecentFooters> eldest) {
+      return size() > MAX_DATASETS;
+    }
+  };
+  private final AtomicLong footerCount = new AtomicLong();
+  private final AtomicLong extraReadCount = new AtomicLong();
+
+  public FooterLoader() {
+    this(DEFAULT_INITIAL_TAIL_SIZE, DEFAULT_MAX_TAIL_SIZE);
+  }
+
+  /**
+   * @param initialTailSize the size of the speculative tail read for a dataset never seen before
+   * @param maxTailSize the maximum size of the speculative tail read
+   */
+  public FooterLoader(int initialTailSize, int maxTailSize) {
+    if (initialTailSize < FOOTER_TAIL_LENGTH || maxTailSize < initialTailSize) {
+      throw new IllegalArgumentException(
+          "invalid tail sizes: initial " + initialTailSize + ", max " + maxTailSize
+          + ". Expected " + FOOTER_TAIL_LENGTH + " <= initial <= max");
+    }
+    this.initialTailSize = initialTailSize;
+    this.maxTailSize = maxTailSize;
+  }
+
+  /**
+   * @param dataset the dataset the file belongs to, footer sizes are learnt per dataset
+   * @param file the parquet file
+   * @return the metadata in the footer of the file
+   * @throws IOException
+   */
+  public FileMetaData readFileMetaData(String dataset, final FileChannel file) throws IOException {
+    return readFileMetaData(dataset, new Input() {
+      @Override
+      public long length() throws IOException {
+        return file.size();
+      }
+
+      @Override
+      public void readFully(long position, ByteBuffer buffer) throws IOException {
+        Util.readFully(file, buffer, position);
+      }
+    });
+  }
+
+  /**
+   * @param dataset the dataset the file belongs to, footer sizes are learnt per dataset
+   * @param file the parquet file
+   * @return the metadata in the footer of the file
+   * @throws IOException
+   */
+  public FileMetaData readFileMetaData(String dataset, Input file) throws IOException {
+    return Util.readFileMetaData(readFooter(dataset, file));
+  }
+
+  /**
+   * reads the serialized footer
+   * @param dataset the dataset the file belongs to, footer sizes are learnt per dataset
+   * @param file the parquet file
+   * @return a buffer containing exactly the serialized footer
+   * @throws IOException
+   */
+  ByteBuffer readFooter(String dataset, Input file) throws IOException {
+    long fileLength = file.length();
+    if (fileLength < FOOTER_TAIL_LENGTH) {
+      throw new IOException("not a parquet file: " + fileLength + " bytes is too small");
+    }
+    int tailSize = (int) Math.min(getTailSize(dataset), fileLength);
+    ByteBuffer tail = ByteBuffer.allocate(tailSize);
+    file.readFully(fileLength - tailSize, tail);
+    tail.position(tailSize - FOOTER_TAIL_LENGTH);
+    int footerLength = Util.readFooterLength(tail, fileLength);
+    int neededSize = footerLength + FOOTER_TAIL_LENGTH;
+    footerCount.incrementAndGet();
+    record(dataset, neededSize);
+
+    if (neededSize <= tailSize) {
+      tail.limit(tailSize - FOOTER_TAIL_LENGTH);
+      tail.position(tailSize - neededSize);
+      return tail.slice();
+    }
+    // the footer did not fit: only read the missing beginning
+    extraReadCount.incrementAndGet();
+    ByteBuffer footer = ByteBuffer.allocate(footerLength);
+    footer.limit(neededSize - tailSize);
+    file.readFully(fileLength - neededSize, footer);
+    footer.limit(footerLength);
+    tail.position(0);
+    tail.limit(tailSize - FOOTER_TAIL_LENGTH);
+    footer.put(tail);
+    footer.flip();
+    return footer;
+  }
+
+  /**
+   * @param dataset the dataset
+   * @return the size of the speculative tail read for the next file of this dataset
+   */
+  public int getTailSize(String dataset) {
+    int maxRecent;
+    synchronized (datasets) {
+      RecentFooters recent = datasets.get(dataset);
+      if (recent == null) {
+        return initialTailSize;
+      }
+      maxRecent = recent.max();
+    }
+    // some slack for footers slightly bigger than the ones seen so far
+    long tailSize = maxRecent + maxRecent / 8;
+    tailSize = (tailSize + TAIL_SIZE_ROUNDING - 1) / TAIL_SIZE_ROUNDING * TAIL_SIZE_ROUNDING;
+    return (int) Math.max(FOOTER_TAIL_LENGTH, Math.min(tailSize, maxTailSize));
+  }
+
+  private void record(String dataset, int neededSize) {
+    synchronized (datasets) {
+      RecentFooters recent = datasets.get(dataset);
+      if (recent == null) {
+        recent = new RecentFooters();
+        datasets.put(dataset, recent);
+      }
+      recent.add(neededSize);
+    }
+  }
+
+  /**
+   * @return the number of footers read
+   */
+  public long getFooterCount() {
+    return footerCount.get();
+  }
+
+  /**
+   * @return the number of footers that needed a second read because they were bigger than the speculative tail
+   */
+  public long getExtraReadCount() {
+    return extraReadCount.get();
+  }
+}
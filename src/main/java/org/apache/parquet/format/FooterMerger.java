@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.parquet.format.Util.FileMetaDataConsumer;
+
+/**
+ * Merges the footers of the files of a dataset into a summary footer (the content of a _metadata file)
+ * without holding their FileMetaData: each footer is read with the event based reader
+ * and its row groups are serialized to the summary as they are decoded,
+ * with the file_path of their ColumnChunks set to the path of the file.
+ *
+ * All the files must have the same schema. The key_value_metadata of the summary
+ * contains the entries that have the same value in all the files defining them.
+ *
+ * The memory used does not depend on the number of files:
+ * <ul>
+ * <li>the row groups are serialized to a spill file until {@link #finish(String)}, which copies them to the output</li>
+ * <li>or, when the total number of row groups is known up front, they are written to the output as they are read</li>
+ * </ul>
+ * If adding a file fails the summary is incomplete and should be discarded.
+ *
+ * This class is not thread safe.
+ * @see FileMetaDataWriter
+ */
+public class FooterMerger {
+
+  /**
+   * carries an IOException out of a FileMetaDataConsumer
+   */
+  private static final class MergeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    MergeException(IOException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+      return (IOException) super.getCause();
+    }
+  }
+
+  private final OutputStream out;
+  // the file buffering the row groups, null if they are not spilled
+  private final File spill;
+  // -1 when the row groups are buffered
+  private final int rowGroupCount;
+  private FileMetaDataWriter writer;
+  private List<SchemaElement> schema;
+  private final Map<String, String> keyValues = new LinkedHashMap<String, String>();
+  private final Set<String> conflictingKeys = new HashSet<String>();
+  private int fileCount;
+
+  /**
+   * buffers the serialized row groups in memory until {@link #finish(String)}
+   * @param out the stream to write the summary footer to
+   * @deprecated the buffer grows with the footers of all the files and fails past 2GB,
+   * use {@link #FooterMerger(OutputStream, File)} or {@link #FooterMerger(OutputStream, int)}
+   */
+  @Deprecated
+  public FooterMerger(OutputStream out) {
+    this(out, null, -1);
+  }
+
+  /**
+   * buffers the serialized row groups in a file until {@link #finish(String)}
+   * @param out the stream to write the summary footer to
+   * @param spill the file buffering the row groups, overwritten. The caller deletes it after {@link #finish(String)}.
+   */
+  public FooterMerger(OutputStream out, File spill) {
+    this(out, checkSpill(spill), -1);
+  }
+
+  /**
+   * writes the row groups to the output as they are read.
+   * The count is usually not known without reading the footers a first time
+   * (for example with {@link Util#readLazyFileMetaData(java.nio.channels.FileChannel)}),
+   * which doubles the footer reads and decoding: prefer {@link #FooterMerger(OutputStream, File)} then.
+   * @param out the stream to write the summary footer to
+   * @param rowGroupCount the total number of row groups of the files that will be added
+   */
+  public FooterMerger(OutputStream out, int rowGroupCount) {
+    this(out, null, checkRowGroupCount(rowGroupCount));
+  }
+
+  private FooterMerger(OutputStream out, File spill, int rowGroupCount) {
+    this.out = out;
+    this.spill = spill;
+    this.rowGroupCount = rowGroupCount;
+  }
+
+  private static File checkSpill(File spill) {
+    if (spill == null) {
+      throw new NullPointerException("spill");
+    }
+    return spill;
+  }
+
+  private static int checkRowGroupCount(int rowGroupCount) {
+    if (rowGroupCount < 0) {
+      throw new IllegalArgumentException("invalid row group count: " + rowGroupCount);
+    }
+    return rowGroupCount;
+  }
+
+  /**
+   * adds the row groups of a file to the summary
+   * @param filePath the path of the file relative to the summary file
+   * @param footer the serialized footer of the file
+   * @throws IOException if the footer can not be read or its schema is not the schema of the summary
+   */
+  public void add(String filePath, InputStream footer) throws IOException {
+    try {
+      Util.readFileMetaData(footer, new MergingConsumer(filePath));
+    } catch (MergeException e) {
+      throw e.getCause();
+    }
+    ++fileCount;
+  }
+
+  /**
+   * adds the row groups of a file to the summary
+   * @param filePath the path of the file relative to the summary file
+   * @param file the parquet file
+   * @throws IOException if the footer can not be read or its schema is not the schema of the summary
+   */
+  public void add(String filePath, FileChannel file) throws IOException {
+    try {
+      Util.readFileMetaData(Util.protocol(new ByteBufferTransport(Util.readFooter(file))), new MergingConsumer(filePath), false);
+    } catch (MergeException e) {
+      throw e.getCause();
+    }
+    ++fileCount;
+  }
+
+  /**
+   * writes the summary footer
+   * @param createdBy the created_by of the summary, null if not set
+   * @throws IOException if no file was added, the number of row groups is not the one declared or the footer can not be written
+   */
+  public void finish(String createdBy) throws IOException {
+    if (writer == null) {
+      throw new IOException("can not write a summary of " + fileCount + " files without schema");
+    }
+    List<KeyValue> keyValueMetadata = null;
+    if (!keyValues.isEmpty()) {
+      keyValueMetadata = new ArrayList<KeyValue>(keyValues.size());
+      for (Map.Entry<String, String> entry : keyValues.entrySet()) {
+        KeyValue keyValue = new KeyValue(entry.getKey());
+        if (entry.getValue() != null) {
+          keyValue.setValue(entry.getValue());
+        }
+        keyValueMetadata.add(keyValue);
+      }
+    }
+    writer.finish(keyValueMetadata, createdBy);
+  }
+
+  /**
+   * @return the number of files added so far
+   */
+  public int getFileCount() {
+    return fileCount;
+  }
+
+  /**
+   * @return the number of row groups added so far
+   */
+  public int getRowGroupCount() {
+    return writer == null ? 0 : writer.getRowGroupCount();
+  }
+
+  private final class MergingConsumer extends FileMetaDataConsumer {
+    private final String filePath;
+    private int version = 1;
+    private boolean hasSchema;
+
+    MergingConsumer(String filePath) {
+      this.filePath = filePath;
+    }
+
+    @Override
+    public void setVersion(int version) {
+      this.version = version;
+    }
+
+    @Override
+    public void setSchema(List<SchemaElement> fileSchema) {
+      hasSchema = true;
+      if (schema == null) {
+        schema = fileSchema;
+        try {
+          writer = newWriter();
+        } catch (IOException e) {
+          throw new MergeException(e);
+        }
+      } else if (!schema.equals(fileSchema)) {
+        throw new MergeException(new IOException("the schema of " + filePath + " is not the schema of the summary: "
+            + fileSchema + " instead of " + schema));
+      }
+    }
+
+    private FileMetaDataWriter newWriter() throws IOException {
+      if (rowGroupCount >= 0) {
+        return new FileMetaDataWriter(out, version, schema, rowGroupCount);
+      } else if (spill != null) {
+        return new FileMetaDataWriter(out, version, schema, spill);
+      } else {
+        return new FileMetaDataWriter(out, version, schema);
+      }
+    }
+
+    @Override
+    public void setNumRows(long numRows) {
+      // the sum of the row groups
+    }
+
+    @Override
+    public void addRowGroup(RowGroup rowGroup) {
+      if (!hasSchema) {
+        throw new MergeException(new IOException("the schema must precede the row groups in " + filePath));
+      }
+      for (ColumnChunk columnChunk : rowGroup.getColumns()) {
+        columnChunk.setFile_path(filePath);
+      }
+      try {
+        writer.addRowGroup(rowGroup);
+      } catch (IOException e) {
+        throw new MergeException(e);
+      }
+    }
+
+    @Override
+    public void addKeyValueMetaData(KeyValue kv) {
+      String key = kv.getKey();
+      if (conflictingKeys.contains(key)) {
+        return;
+      }
+      if (!keyValues.containsKey(key)) {
+        keyValues.put(key, kv.getValue());
+      } else {
+        String value = keyValues.get(key);
+        if (value == null ? kv.getValue() != null : !value.equals(kv.getValue())) {
+          keyValues.remove(key);
+          conflictingKeys.add(key);
+        }
+      }
+    }
+
+    @Override
+    public void setCreatedBy(String createdBy) {
+      // the summary has its own
+    }
+  }
+}
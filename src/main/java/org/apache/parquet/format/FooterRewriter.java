@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * Rewrites a footer, copying the bytes of the row groups that are not modified verbatim.
+ * Only the header fields (version, schema, key_value_metadata, created_by), the replaced row groups
+ * and the num_rows of the removed or replaced row groups are decoded or encoded.
+ *
+ * <pre>
+ * FooterRewriter rewriter = new FooterRewriter(footer);
+ * rewriter.getFileMetaData().addToKey_value_metadata(new KeyValue("k").setValue("v"));
+ * rewriter.removeRowGroup(3);
+ * rewriter.write(out);
+ * </pre>
+ *
+ * This class is not thread safe.
+ */
+public class FooterRewriter {
+
+  private final LazyFileMetaData source;
+  private final FileMetaData fileMetaData;
+  private final RowGroup[] replacements;
+  private final BitSet removed = new BitSet();
+
+  /**
+   * @param footer the serialized FileMetaData, retained until the footer is written.
+   * The position of the buffer is advanced to the first byte after the metadata.
+   * @throws IOException if the footer can not be read
+   */
+  public FooterRewriter(ByteBuffer footer) throws IOException {
+    this.source = Util.readLazyFileMetaData(footer);
+    this.fileMetaData = source.getFileMetaData().deepCopy();
+    this.replacements = new RowGroup[source.getRowGroupCount()];
+  }
+
+  /**
+   * The fields of the footer other than row_groups, they can be modified before the footer is written.
+   * num_rows is ignored: it is updated from the removed and replaced row groups.
+   * @return the header of the footer to write
+   */
+  public FileMetaData getFileMetaData() {
+    return fileMetaData;
+  }
+
+  /**
+   * @return the number of row groups in the original footer
+   */
+  public int getRowGroupCount() {
+    return replacements.length;
+  }
+
+  /**
+   * @param index the index of the row group in the original footer
+   * @return the replacement of the row group or the decoded original row group
+   * @throws IOException if the row group can not be read
+   */
+  public RowGroup getRowGroup(int index) throws IOException {
+    return replacements[index] != null ? replacements[index] : source.getRowGroup(index);
+  }
+
+  /**
+   * @param index the index of the row group in the original footer
+   */
+  public void removeRowGroup(int index) {
+    checkIndex(index);
+    removed.set(index);
+  }
+
+  /**
+   * @param index the index of the row group in the original footer
+   * @param rowGroup the row group written instead
+   */
+  public void replaceRowGroup(int index, RowGroup rowGroup) {
+    checkIndex(index);
+    if (rowGroup == null) {
+      throw new NullPointerException("rowGroup");
+    }
+    replacements[index] = rowGroup;
+    removed.clear(index);
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= replacements.length) {
+      throw new IndexOutOfBoundsException("row group " + index + " in a file of " + replacements.length + " row groups");
+    }
+  }
+
+  /**
+   * writes the rewritten footer
+   * @param to the stream to write to
+   * @throws IOException if a row group can not be read or the footer can not be written
+   */
+  public void write(OutputStream to) throws IOException {
+    long numRows = source.getFileMetaData().getNum_rows();
+    for (int i = 0; i < replacements.length; i++) {
+      if (removed.get(i) || replacements[i] != null) {
+        numRows -= source.getRowGroup(i).getNum_rows();
+      }
+      if (!removed.get(i) && replacements[i] != null) {
+        numRows += replacements[i].getNum_rows();
+      }
+    }
+    FileMetaDataWriter writer = new FileMetaDataWriter(
+        to, fileMetaData.getVersion(), fileMetaData.getSchema(), replacements.length - removed.cardinality(), numRows);
+    for (int i = 0; i < replacements.length; i++) {
+      if (removed.get(i)) {
+        continue;
+      }
+      if (replacements[i] != null) {
+        writer.addRowGroup(replacements[i]);
+      } else {
+        writer.addSerializedRowGroup(source.getSerializedRowGroup(i));
+      }
+    }
+    writer.finish(fileMetaData.getKey_value_metadata(), fileMetaData.getCreated_by());
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the heap retained by a decoded FileMetaData, assuming a 64 bit JVM with compressed references
+ * (12 byte object headers, 4 byte references, 8 byte alignment).
+ * Lists and strings shared within the footer are counted once, enums are not counted.
+ * Strings shared with other footers by interning are counted in each of them.
+ */
+final class HeapSize {
+
+  private static final int HEADER = 12;
+  private static final int REFERENCE = 4;
+  // the __isset_bit_vector of the structs with optional primitive fields: a BitSet and its long[1]
+  private static final int ISSET_BIT_VECTOR = 24 + 24;
+  // a HeapByteBuffer without its array
+  private static final int BYTE_BUFFER = 48;
+  // an ArrayList without its array
+  private static final int ARRAY_LIST = 24;
+  // the unmodifiable view of a canonical list
+  private static final int UNMODIFIABLE_LIST = 24;
+
+  private static final long FILE_META_DATA = struct(5, 4 + 8) + ISSET_BIT_VECTOR;
+  private static final long SCHEMA_ELEMENT = struct(5, 5 * 4) + ISSET_BIT_VECTOR;
+  private static final long KEY_VALUE = struct(2, 0);
+  private static final long ROW_GROUP = struct(3, 2 * 8) + ISSET_BIT_VECTOR;
+  private static final long SORTING_COLUMN = struct(1, 4 + 2) + ISSET_BIT_VECTOR;
+  private static final long COLUMN_CHUNK = struct(3, 8) + ISSET_BIT_VECTOR;
+  private static final long COLUMN_META_DATA = struct(8, 7 * 8) + ISSET_BIT_VECTOR;
+  private static final long STATISTICS = struct(3, 2 * 8) + ISSET_BIT_VECTOR;
+  private static final long PAGE_ENCODING_STATS = struct(3, 4) + ISSET_BIT_VECTOR;
+
+  private final Map<Object, Object> seen = new IdentityHashMap<Object, Object>();
+
+  private HeapSize() {
+  }
+
+  /**
+   * @param fileMetaData a decoded footer
+   * @return the estimated number of bytes of heap it retains
+   */
+  static long of(FileMetaData fileMetaData) {
+    return new HeapSize().fileMetaData(fileMetaData);
+  }
+
+  private static long struct(int references, int primitiveBytes) {
+    return align(HEADER + references * REFERENCE + primitiveBytes);
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  private boolean firstTime(Object o) {
+    return o != null && seen.put(o, o) == null;
+  }
+
+  private long list(List<?> list) {
+    if (!firstTime(list)) {
+      return 0;
+    }
+    long size = ARRAY_LIST + align(16 + (long) REFERENCE * list.size());
+    return list instanceof ArrayList ? size : size + UNMODIFIABLE_LIST;
+  }
+
+  private long string(String s) {
+    return firstTime(s) ? StringInterner.sizeOf(s) : 0;
+  }
+
+  private long binary(ByteBuffer b) {
+    return b == null ? 0 : BYTE_BUFFER + align(16 + b.capacity());
+  }
+
+  private long fileMetaData(FileMetaData md) {
+    long size = FILE_META_DATA + string(md.getCreated_by());
+    if (md.isSetSchema()) {
+      size += list(md.getSchema());
+      for (SchemaElement element : md.getSchema()) {
+        size += SCHEMA_ELEMENT + string(element.getName());
+      }
+    }
+    size += keyValues(md.getKey_value_metadata());
+    if (md.isSetRow_groups()) {
+      size += list(md.getRow_groups());
+      for (RowGroup rowGroup : md.getRow_groups()) {
+        size += rowGroup(rowGroup);
+      }
+    }
+    return size;
+  }
+
+  private long keyValues(List<KeyValue> keyValues) {
+    if (keyValues == null) {
+      return 0;
+    }
+    long size = list(keyValues);
+    for (KeyValue keyValue : keyValues) {
+      size += KEY_VALUE + string(keyValue.getKey()) + string(keyValue.getValue());
+    }
+    return size;
+  }
+
+  private long rowGroup(RowGroup rowGroup) {
+    long size = ROW_GROUP;
+    if (rowGroup.isSetSorting_columns()) {
+      size += list(rowGroup.getSorting_columns()) + SORTING_COLUMN * rowGroup.getSorting_columns().size();
+    }
+    if (rowGroup.isSetColumns()) {
+      size += list(rowGroup.getColumns());
+      for (ColumnChunk columnChunk : rowGroup.getColumns()) {
+        size += COLUMN_CHUNK + string(columnChunk.getFile_path());
+        if (columnChunk.isSetMeta_data()) {
+          size += columnMetaData(columnChunk.getMeta_data());
+        }
+      }
+    }
+    return size;
+  }
+
+  private long columnMetaData(ColumnMetaData metaData) {
+    long size = COLUMN_META_DATA;
+    if (metaData.isSetEncodings()) {
+      size += list(metaData.getEncodings());
+    }
+    if (metaData.isSetPath_in_schema()) {
+      List<String> path = metaData.getPath_in_schema();
+      if (!seen.containsKey(path)) {
+        for (String name : path) {
+          size += string(name);
+        }
+      }
+      size += list(path);
+    }
+    size += keyValues(metaData.getKey_value_metadata());
+    if (metaData.isSetStatistics()) {
+      // the generated getters resize the buffers, read the fields
+      Statistics statistics = metaData.getStatistics();
+      size += STATISTICS + binary(statistics.min) + binary(statistics.max);
+    }
+    if (metaData.isSetEncoding_stats()) {
+      size += list(metaData.getEncoding_stats()) + PAGE_ENCODING_STATS * metaData.getEncoding_stats().size();
+    }
+    return size;
+  }
+}
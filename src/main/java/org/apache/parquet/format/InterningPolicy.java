@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+/**
+ * How the strings of the metadata are interned when it is read:
+ * <ul>
+ * <li>{@link #none()} for one-off reads of metadata that is soon discarded</li>
+ * <li>{@link #perRead()} to share the strings within one footer only</li>
+ * <li>{@link #shared()} to share them with all the footers read in the process, for metadata that is kept (the default)</li>
+ * </ul>
+ *
+ * @see Util#readFileMetaData(java.io.InputStream, InterningPolicy)
+ */
+public abstract class InterningPolicy {
+
+  private static final InterningPolicy NONE = new InterningPolicy() {
+    @Override
+    StringInterner newReadInterner() {
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      return "InterningPolicy(none)";
+    }
+  };
+
+  private static final InterningPolicy PER_READ = new InterningPolicy() {
+    @Override
+    StringInterner newReadInterner() {
+      return StringInterner.scoped();
+    }
+
+    @Override
+    public String toString() {
+      return "InterningPolicy(per read)";
+    }
+  };
+
+  private static final InterningPolicy SHARED = shared(StringInterner.shared());
+
+  /**
+   * @return the policy decoding every string as a new instance
+   */
+  public static InterningPolicy none() {
+    return NONE;
+  }
+
+  /**
+   * @return the policy interning the strings of each read in a table discarded after the read
+   */
+  public static InterningPolicy perRead() {
+    return PER_READ;
+  }
+
+  /**
+   * @return the policy interning the strings with {@link StringInterner#shared()}
+   */
+  public static InterningPolicy shared() {
+    return SHARED;
+  }
+
+  /**
+   * @param interner the interner of the strings of all the reads
+   * @return the policy interning the strings with the given interner
+   */
+  public static InterningPolicy shared(final StringInterner interner) {
+    if (interner == null) {
+      throw new NullPointerException("interner");
+    }
+    return new InterningPolicy() {
+      @Override
+      StringInterner newReadInterner() {
+        return interner;
+      }
+
+      @Override
+      public String toString() {
+        return "InterningPolicy(shared " + interner + ")";
+      }
+    };
+  }
+
+  InterningPolicy() {
+  }
+
+  /**
+   * called once per read
+   * @return the interner of the strings of the read, null if they are not interned
+   */
+  abstract StringInterner newReadInterner();
+}
@@ -22,17 +22,20 @@ package org.apache.parquet.format;
 import java.nio.ByteBuffer;
 
 import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TCompactProtocol;
 import org.apache.thrift.protocol.TField;
 import org.apache.thrift.protocol.TList;
 import org.apache.thrift.protocol.TMap;
 import org.apache.thrift.protocol.TMessage;
 import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolException;
 import org.apache.thrift.protocol.TSet;
 import org.apache.thrift.protocol.TStruct;
 import org.apache.thrift.transport.TTransport;
 
 /**
  * TProtocol that interns the strings.
+ * Strings are interned with {@link StringInterner#shared()} unless another interner is given.
  *
  * @author Julien Le Dem
  *
@@ -40,10 +43,23 @@ import org.apache.thrift.transport.TTransport;
 public class InterningProtocol extends TProtocol {
 
   private final TProtocol delegate;
+  private final StringInterner interner;
+  // the UTF-8 bytes of the strings read from transports without a buffer
+  private byte[] scratch = new byte[256];
+  private final byte[] oneByte = new byte[1];
 
   public InterningProtocol(TProtocol delegate) {
+    this(delegate, StringInterner.shared());
+  }
+
+  /**
+   * @param delegate the protocol decoding the strings
+   * @param interner the interner returning their canonical instance
+   */
+  public InterningProtocol(TProtocol delegate, StringInterner interner) {
     super(delegate.getTransport());
     this.delegate = delegate;
+    this.interner = interner;
   }
 
   public TTransport getTransport() {
@@ -216,7 +232,54 @@ public class InterningProtocol extends TProtocol {
 
   public String readString() throws TException {
     // this is where we intern the strings
-    return delegate.readString().intern();
+    if (!(delegate instanceof TCompactProtocol)) {
+      return interner.intern(delegate.readString());
+    }
+    // the compact protocol encodes a string as its length (varint) followed by its UTF-8 bytes:
+    // they are looked up by the interner to avoid decoding the strings already seen
+    TTransport transport = getTransport();
+    byte[] buffer = transport.getBuffer();
+    if (buffer != null) {
+      // look them up in place
+      int position = transport.getBufferPosition();
+      int remaining = transport.getBytesRemainingInBuffer();
+      int length = 0;
+      int i = 0;
+      for (int shift = 0; i < remaining && shift <= 28; shift += 7) {
+        byte b = buffer[position + i++];
+        length |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          if (length >= 0 && length <= remaining - i) {
+            String s = interner.intern(buffer, position + i, length);
+            transport.consumeBuffer(i + length);
+            return s;
+          }
+          break;
+        }
+      }
+      // not entirely in the buffer: read it as from a stream
+    }
+    int length = readVarint32(transport);
+    if (length < 0) {
+      throw new TProtocolException(TProtocolException.NEGATIVE_SIZE, "Negative length: " + length);
+    }
+    if (length > scratch.length) {
+      scratch = new byte[Math.max(length, 2 * scratch.length)];
+    }
+    transport.readAll(scratch, 0, length);
+    return interner.intern(scratch, 0, length);
+  }
+
+  private int readVarint32(TTransport transport) throws TException {
+    int value = 0;
+    for (int shift = 0; shift <= 28; shift += 7) {
+      transport.readAll(oneByte, 0, 1);
+      value |= (oneByte[0] & 0x7F) << shift;
+      if ((oneByte[0] & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new TProtocolException(TProtocolException.INVALID_DATA, "Variable length int over 5 bytes");
   }
 
   public ByteBuffer readBinary() throws TException {
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+/**
+ * A snapshot of the counters of a {@link StringInterner}
+ *
+ * @see StringInterner#getStats()
+ */
+public final class InterningStats implements StringInternerMXBean {
+
+  private final long hitCount;
+  private final long uniqueCount;
+  private final long bytesSaved;
+  private final int size;
+  private final long retainedBytes;
+
+  InterningStats(long hitCount, long uniqueCount, long bytesSaved, int size, long retainedBytes) {
+    this.hitCount = hitCount;
+    this.uniqueCount = uniqueCount;
+    this.bytesSaved = bytesSaved;
+    this.size = size;
+    this.retainedBytes = retainedBytes;
+  }
+
+  @Override
+  public long getInternCount() {
+    return hitCount + uniqueCount;
+  }
+
+  @Override
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  @Override
+  public long getUniqueCount() {
+    return uniqueCount;
+  }
+
+  @Override
+  public double getHitRate() {
+    long internCount = getInternCount();
+    return internCount == 0 ? 0 : (double) hitCount / internCount;
+  }
+
+  @Override
+  public long getBytesSaved() {
+    return bytesSaved;
+  }
+
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  @Override
+  public long getRetainedBytes() {
+    return retainedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "InterningStats(" + getInternCount() + " strings, " + hitCount + " hits, " + uniqueCount + " unique, "
+        + bytesSaved + " bytes saved, " + size + " retained in " + retainedBytes + " bytes)";
+  }
+}
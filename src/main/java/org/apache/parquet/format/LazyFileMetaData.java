@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import static org.apache.parquet.format.PageHeaderReader.is;
+import static org.apache.parquet.format.PageHeaderReader.required;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.protocol.TProtocolUtil;
+import org.apache.thrift.protocol.TType;
+
+/**
+ * A FileMetaData of which only version, schema, num_rows, key_value_metadata and created_by are decoded.
+ * The RowGroups are located by a skip pass over the footer and decoded one at a time when requested,
+ * which is much cheaper than decoding all of them when only a few are needed.
+ *
+ * The serialized footer is retained and must not be modified.
+ * Row groups are decoded from an independent view of it so that instances can be shared between threads.
+ *
+ * @see Util#readLazyFileMetaData(ByteBuffer)
+ */
+public final class LazyFileMetaData {
+
+  // row groups are decoded in parallel in at most this many batches of contiguous row groups
+  private static final int MAX_BATCHES = 64;
+  // smaller batches are not worth the scheduling overhead
+  private static final int MIN_BATCH_SIZE = 256 * 1024;
+
+  private final ByteBuffer footer;
+  private final FileMetaData fileMetaData;
+  // the start of each row group relative to the beginning of the footer followed by the end of the last one
+  private final int[] rowGroupOffsets;
+  // the interner of the strings of this footer, null if they are not interned
+  private final StringInterner interner;
+  // the row groups decoded from this footer share their paths and encodings
+  private final ListCanonicalizer lists = new ListCanonicalizer();
+
+  /**
+   * decodes the header fields of the footer and locates its row groups.
+   * The position of the buffer is advanced to the first byte after the metadata.
+   * @param from the serialized FileMetaData
+   * @param interner the interner of the strings of the footer, null to not intern them
+   * @throws IOException if the footer can not be read
+   */
+  LazyFileMetaData(ByteBuffer from, StringInterner interner) throws IOException {
+    this.footer = from.slice();
+    this.interner = interner;
+    this.fileMetaData = new FileMetaData();
+    ByteBuffer buffer = footer.duplicate();
+    try {
+      this.rowGroupOffsets = readHeader(Util.protocol(new ByteBufferTransport(buffer), interner), buffer, fileMetaData);
+    } catch (TException e) {
+      throw new IOException("can not read FileMetaData: " + e.getMessage(), e);
+    }
+    from.position(from.position() + buffer.position());
+  }
+
+  private static int[] readHeader(TProtocol protocol, ByteBuffer buffer, FileMetaData fileMetaData) throws TException {
+    int[] rowGroupOffsets = null;
+    protocol.readStructBegin();
+    while (true) {
+      TField field = protocol.readFieldBegin();
+      if (field.type == TType.STOP) {
+        break;
+      }
+      switch (field.id) {
+      case 1:
+        if (is(protocol, field, TType.I32)) {
+          fileMetaData.setVersion(protocol.readI32());
+        }
+        break;
+      case 2:
+        if (is(protocol, field, TType.LIST)) {
+          TList list = protocol.readListBegin();
+          List<SchemaElement> schema = new ArrayList<SchemaElement>(list.size);
+          for (int i = 0; i < list.size; i++) {
+            SchemaElement element = new SchemaElement();
+            element.read(protocol);
+            schema.add(element);
+          }
+          protocol.readListEnd();
+          fileMetaData.setSchema(schema);
+        }
+        break;
+      case 3:
+        if (is(protocol, field, TType.I64)) {
+          fileMetaData.setNum_rows(protocol.readI64());
+        }
+        break;
+      case 4:
+        if (is(protocol, field, TType.LIST)) {
+          TList list = protocol.readListBegin();
+          if (list.elemType != TType.STRUCT) {
+            throw new TProtocolException(TProtocolException.INVALID_DATA, "row_groups should be a list of structs, not " + list.elemType);
+          }
+          rowGroupOffsets = new int[list.size + 1];
+          for (int i = 0; i < list.size; i++) {
+            rowGroupOffsets[i] = buffer.position();
+            TProtocolUtil.skip(protocol, TType.STRUCT);
+          }
+          rowGroupOffsets[list.size] = buffer.position();
+          protocol.readListEnd();
+        }
+        break;
+      case 5:
+        if (is(protocol, field, TType.LIST)) {
+          TList list = protocol.readListBegin();
+          List<KeyValue> keyValues = new ArrayList<KeyValue>(list.size);
+          for (int i = 0; i < list.size; i++) {
+            KeyValue keyValue = new KeyValue();
+            keyValue.read(protocol);
+            keyValues.add(keyValue);
+          }
+          protocol.readListEnd();
+          fileMetaData.setKey_value_metadata(keyValues);
+        }
+        break;
+      case 6:
+        if (is(protocol, field, TType.STRING)) {
+          fileMetaData.setCreated_by(protocol.readString());
+        }
+        break;
+      default:
+        TProtocolUtil.skip(protocol, field.type);
+      }
+      protocol.readFieldEnd();
+    }
+    protocol.readStructEnd();
+    required(fileMetaData.isSetVersion(), "version", fileMetaData);
+    required(fileMetaData.isSetSchema(), "schema", fileMetaData);
+    required(fileMetaData.isSetNum_rows(), "num_rows", fileMetaData);
+    required(rowGroupOffsets != null, "row_groups", fileMetaData);
+    return rowGroupOffsets;
+  }
+
+  /**
+   * @return the decoded fields of the FileMetaData, without the row groups. The same instance is returned on every call.
+   */
+  public FileMetaData getFileMetaData() {
+    return fileMetaData;
+  }
+
+  /**
+   * @return the number of row groups in the file
+   */
+  public int getRowGroupCount() {
+    return rowGroupOffsets.length - 1;
+  }
+
+  /**
+   * decodes a row group. A new instance is returned on every call.
+   * @param index the index of the row group in the file
+   * @return the row group
+   * @throws IOException if the row group can not be read
+   */
+  public RowGroup getRowGroup(int index) throws IOException {
+    return lists.canonicalize(Util.read(Util.protocol(new ByteBufferTransport(getSerializedRowGroup(index)), interner), new RowGroup()));
+  }
+
+  /**
+   * @param index the index of the row group in the file
+   * @return a view of the serialized RowGroup
+   */
+  ByteBuffer getSerializedRowGroup(int index) {
+    if (index < 0 || index >= getRowGroupCount()) {
+      throw new IndexOutOfBoundsException("row group " + index + " in a file of " + getRowGroupCount() + " row groups");
+    }
+    ByteBuffer rowGroup = footer.duplicate();
+    rowGroup.limit(rowGroupOffsets[index + 1]).position(rowGroupOffsets[index]);
+    return rowGroup.slice();
+  }
+
+  /**
+   * decodes a range of row groups
+   * @param from the index of the first row group
+   * @param to the index after the last row group
+   * @return the row groups in the file order
+   * @throws IOException if a row group can not be read
+   */
+  public List<RowGroup> getRowGroups(int from, int to) throws IOException {
+    List<RowGroup> rowGroups = new ArrayList<RowGroup>(to - from);
+    for (int i = from; i < to; i++) {
+      rowGroups.add(getRowGroup(i));
+    }
+    return rowGroups;
+  }
+
+  /**
+   * decodes all the row groups
+   * @return a new FileMetaData equal to the one in the footer
+   * @throws IOException if a row group can not be read
+   */
+  public FileMetaData toFileMetaData() throws IOException {
+    return toFileMetaData(getRowGroups(0, getRowGroupCount()));
+  }
+
+  /**
+   * decodes all the row groups concurrently, in batches of contiguous row groups of similar serialized size.
+   * Meant for very large footers, small ones are decoded in the calling thread.
+   * The calling thread waits for the batches: it should not be one of the threads of a bounded executor.
+   * @param executor the executor decoding the batches
+   * @return a new FileMetaData equal to the one in the footer
+   * @throws IOException if a row group can not be read or the calling thread is interrupted
+   */
+  public FileMetaData toFileMetaData(ExecutorService executor) throws IOException {
+    int rowGroupCount = getRowGroupCount();
+    int batchSize = Math.max(MIN_BATCH_SIZE, (rowGroupOffsets[rowGroupCount] - rowGroupOffsets[0]) / MAX_BATCHES);
+    List<Future<List<RowGroup>>> batches = new ArrayList<Future<List<RowGroup>>>();
+    int from = 0;
+    while (from < rowGroupCount) {
+      int to = from + 1;
+      while (to < rowGroupCount && rowGroupOffsets[to] - rowGroupOffsets[from] < batchSize) {
+        ++to;
+      }
+      if (from == 0 && to == rowGroupCount) {
+        return toFileMetaData();
+      }
+      final int batchFrom = from;
+      final int batchTo = to;
+      batches.add(executor.submit(new Callable<List<RowGroup>>() {
+        @Override
+        public List<RowGroup> call() throws IOException {
+          return getRowGroups(batchFrom, batchTo);
+        }
+      }));
+      from = to;
+    }
+    List<RowGroup> rowGroups = new ArrayList<RowGroup>(rowGroupCount);
+    try {
+      for (Future<List<RowGroup>> batch : batches) {
+        rowGroups.addAll(batch.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while reading FileMetaData");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("can not read FileMetaData: " + cause, cause);
+    } finally {
+      for (Future<List<RowGroup>> batch : batches) {
+        batch.cancel(true);
+      }
+    }
+    return toFileMetaData(rowGroups);
+  }
+
+  private FileMetaData toFileMetaData(List<RowGroup> rowGroups) {
+    FileMetaData result = fileMetaData.deepCopy();
+    result.setRow_groups(rowGroups);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "LazyFileMetaData(" + fileMetaData + ", " + getRowGroupCount() + " row groups)";
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the path_in_schema and encodings lists of the ColumnMetaData decoded from a footer
+ * with one unmodifiable instance per distinct list: every row group repeats the same paths
+ * and usually the same encodings.
+ *
+ * This class is thread safe.
+ */
+final class ListCanonicalizer {
+
+  private final Map<List<String>, List<String>> paths = new HashMap<List<String>, List<String>>();
+  private final Map<List<Encoding>, List<Encoding>> encodings = new HashMap<List<Encoding>, List<Encoding>>();
+
+  FileMetaData canonicalize(FileMetaData fileMetaData) {
+    if (fileMetaData.isSetRow_groups()) {
+      for (RowGroup rowGroup : fileMetaData.getRow_groups()) {
+        canonicalize(rowGroup);
+      }
+    }
+    return fileMetaData;
+  }
+
+  synchronized RowGroup canonicalize(RowGroup rowGroup) {
+    if (rowGroup.isSetColumns()) {
+      for (ColumnChunk columnChunk : rowGroup.getColumns()) {
+        if (columnChunk.isSetMeta_data()) {
+          ColumnMetaData metaData = columnChunk.getMeta_data();
+          if (metaData.isSetPath_in_schema()) {
+            metaData.setPath_in_schema(canonical(paths, metaData.getPath_in_schema()));
+          }
+          if (metaData.isSetEncodings()) {
+            metaData.setEncodings(canonical(encodings, metaData.getEncodings()));
+          }
+        }
+      }
+    }
+    return rowGroup;
+  }
+
+  private static <T> List<T> canonical(Map<List<T>, List<T>> lists, List<T> list) {
+    List<T> canonical = lists.get(list);
+    if (canonical == null) {
+      canonical = Collections.unmodifiableList(list);
+      lists.put(canonical, canonical);
+    }
+    return canonical;
+  }
+}
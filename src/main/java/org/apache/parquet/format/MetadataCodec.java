@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TIOStreamTransport;
+
+import org.apache.parquet.format.Util.FileMetaDataConsumer;
+
+/**
+ * Reads and writes metadata like {@link Util} but keeps its transports and protocols
+ * between calls and rebinds them to the stream or buffer of each call.
+ * This avoids allocating a protocol stack per call for high frequency callers (e.g. reading page headers).
+ *
+ * An instance is not thread safe and is meant to be confined to a thread,
+ * it must not be used again from a {@link FileMetaDataConsumer} it is currently calling.
+ */
+public final class MetadataCodec {
+
+  private static final int INITIAL_SCRATCH_SIZE = 1024;
+
+  /**
+   * TIOStreamTransport that can be rebound to another stream
+   */
+  private static final class StreamTransport extends TIOStreamTransport {
+    void bind(InputStream from, OutputStream to) {
+      this.inputStream_ = from;
+      this.outputStream_ = to;
+    }
+  }
+
+  private final StreamTransport streamTransport = new StreamTransport();
+  private final TProtocol streamProtocol = Util.protocol(streamTransport);
+  private final ByteBufferTransport bufferTransport = new ByteBufferTransport(null);
+  private final TProtocol bufferProtocol = Util.protocol(bufferTransport);
+  // page headers are encoded here before being written to a channel, grown when a header does not fit
+  private ByteBuffer scratch = ByteBuffer.allocateDirect(INITIAL_SCRATCH_SIZE);
+
+  public void writePageHeader(PageHeader pageHeader, OutputStream to) throws IOException {
+    try {
+      Util.write(pageHeader, bind(to));
+    } finally {
+      unbindStream();
+    }
+  }
+
+  /**
+   * @param pageHeader the page header
+   * @param to the buffer to write to
+   * @throws IOException if the header does not fit in the remaining space or is invalid
+   * @see Util#writePageHeader(PageHeader, ByteBuffer)
+   */
+  public void writePageHeader(PageHeader pageHeader, ByteBuffer to) throws IOException {
+    try {
+      Util.write(pageHeader, to, bind(to));
+    } finally {
+      unbindBuffer();
+    }
+  }
+
+  /**
+   * encodes the page header into a direct scratch buffer owned by this codec and writes it to the channel
+   * @param pageHeader the page header
+   * @param to the channel to write to
+   * @throws IOException
+   * @see Util#writePageHeader(PageHeader, WritableByteChannel, ByteBuffer)
+   */
+  public void writePageHeader(PageHeader pageHeader, WritableByteChannel to) throws IOException {
+    scratch.clear();
+    try {
+      writePageHeader(pageHeader, scratch);
+    } catch (IOException e) {
+      int size = Util.serializedSize(pageHeader);
+      if (size <= scratch.capacity()) {
+        throw e;
+      }
+      scratch = ByteBuffer.allocateDirect(Math.max(size, 2 * scratch.capacity()));
+      writePageHeader(pageHeader, scratch);
+    }
+    scratch.flip();
+    Util.writeFully(to, scratch);
+  }
+
+  public PageHeader readPageHeader(InputStream from) throws IOException {
+    return readPageHeader(from, new PageHeader());
+  }
+
+  /**
+   * @param from the stream to read the page header from
+   * @param reuse the page header to fill
+   * @return reuse
+   * @throws IOException
+   * @see Util#readPageHeader(InputStream, PageHeader)
+   */
+  public PageHeader readPageHeader(InputStream from, PageHeader reuse) throws IOException {
+    try {
+      return Util.readPageHeader(bind(from), reuse);
+    } finally {
+      unbindStream();
+    }
+  }
+
+  public PageHeader readPageHeader(ByteBuffer from) throws IOException {
+    return readPageHeader(from, new PageHeader());
+  }
+
+  /**
+   * @param from the buffer to read the page header from
+   * @param reuse the page header to fill
+   * @return reuse
+   * @throws IOException
+   * @see Util#readPageHeader(ByteBuffer, PageHeader)
+   */
+  public PageHeader readPageHeader(ByteBuffer from, PageHeader reuse) throws IOException {
+    try {
+      return Util.readPageHeader(bind(from), reuse);
+    } finally {
+      unbindBuffer();
+    }
+  }
+
+  public void writeFileMetaData(FileMetaData fileMetadata, OutputStream to) throws IOException {
+    try {
+      Util.write(fileMetadata, bind(to));
+    } finally {
+      unbindStream();
+    }
+  }
+
+  public FileMetaData readFileMetaData(InputStream from) throws IOException {
+    try {
+      return new ListCanonicalizer().canonicalize(Util.read(bind(from), new FileMetaData()));
+    } finally {
+      unbindStream();
+    }
+  }
+
+  public FileMetaData readFileMetaData(ByteBuffer from) throws IOException {
+    try {
+      return new ListCanonicalizer().canonicalize(Util.read(bind(from), new FileMetaData()));
+    } finally {
+      unbindBuffer();
+    }
+  }
+
+  /**
+   * @param from the stream to read the metadata from
+   * @param consumer the consumer receiving the metadata
+   * @param skipRowGroups whether row groups should be skipped
+   * @throws IOException
+   * @see Util#readFileMetaData(InputStream, FileMetaDataConsumer, boolean)
+   */
+  public void readFileMetaData(InputStream from, FileMetaDataConsumer consumer, boolean skipRowGroups) throws IOException {
+    try {
+      Util.readFileMetaData(bind(from), consumer, skipRowGroups);
+    } finally {
+      unbindStream();
+    }
+  }
+
+  private TProtocol bind(InputStream from) {
+    streamTransport.bind(from, null);
+    streamProtocol.reset();
+    return streamProtocol;
+  }
+
+  private TProtocol bind(OutputStream to) {
+    streamTransport.bind(null, to);
+    streamProtocol.reset();
+    return streamProtocol;
+  }
+
+  private TProtocol bind(ByteBuffer buffer) {
+    bufferTransport.setBuffer(buffer);
+    bufferProtocol.reset();
+    return bufferProtocol;
+  }
+
+  // do not retain the caller's streams and buffers between calls
+  private void unbindStream() {
+    streamTransport.bind(null, null);
+  }
+
+  private void unbindBuffer() {
+    bufferTransport.setBuffer(null);
+  }
+}
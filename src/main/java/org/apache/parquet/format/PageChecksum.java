@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Computes and verifies the crc of PageHeader: the CRC-32 (the polynomial of zlib and gzip)
+ * of the page as stored in the file, that is the compressed_page_size bytes following the header.
+ * java.util.zip.CRC32 is an intrinsic of recent JVMs and checksums at several GB/s.
+ */
+public final class PageChecksum {
+
+  // direct buffers are copied in chunks of this size
+  private static final int CHUNK_SIZE = 8 * 1024;
+
+  private PageChecksum() {
+  }
+
+  /**
+   * @param page the bytes of the page, from the position to the limit. The position is not modified.
+   * @return the crc of the page
+   */
+  public static int compute(ByteBuffer page) {
+    CRC32 crc = new CRC32();
+    if (page.hasArray()) {
+      crc.update(page.array(), page.arrayOffset() + page.position(), page.remaining());
+    } else {
+      ByteBuffer bytes = page.duplicate();
+      byte[] chunk = new byte[Math.min(CHUNK_SIZE, bytes.remaining())];
+      while (bytes.hasRemaining()) {
+        int length = Math.min(chunk.length, bytes.remaining());
+        bytes.get(chunk, 0, length);
+        crc.update(chunk, 0, length);
+      }
+    }
+    return (int) crc.getValue();
+  }
+
+  /**
+   * @param page the bytes of the page
+   * @param offset the offset of the page in the array
+   * @param length the length of the page
+   * @return the crc of the page
+   */
+  public static int compute(byte[] page, int offset, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(page, offset, length);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * sets the crc of the header, to call before writing it
+   * @param pageHeader the header of the page
+   * @param page the bytes of the page, from the position to the limit. The position is not modified.
+   * @return pageHeader
+   */
+  public static PageHeader setCrc(PageHeader pageHeader, ByteBuffer page) {
+    return pageHeader.setCrc(compute(page));
+  }
+
+  /**
+   * checks the page against the crc of its header
+   * @param pageHeader the header of the page
+   * @param page the bytes of the page, from the position to the limit. The position is not modified.
+   * @return false if the header has no crc and the page could not be checked
+   * @throws IOException if the page does not match the crc
+   */
+  public static boolean verify(PageHeader pageHeader, ByteBuffer page) throws IOException {
+    if (!pageHeader.isSetCrc()) {
+      return false;
+    }
+    check(pageHeader, compute(page));
+    return true;
+  }
+
+  /**
+   * checks the page against the crc of its header
+   * @param pageHeader the header of the page
+   * @param page the bytes of the page
+   * @param offset the offset of the page in the array
+   * @param length the length of the page
+   * @return false if the header has no crc and the page could not be checked
+   * @throws IOException if the page does not match the crc
+   */
+  public static boolean verify(PageHeader pageHeader, byte[] page, int offset, int length) throws IOException {
+    if (!pageHeader.isSetCrc()) {
+      return false;
+    }
+    check(pageHeader, compute(page, offset, length));
+    return true;
+  }
+
+  private static void check(PageHeader pageHeader, int crc) throws IOException {
+    if (crc != pageHeader.getCrc()) {
+      throw new IOException("corrupted page: crc " + Integer.toHexString(crc)
+          + " does not match the crc " + Integer.toHexString(pageHeader.getCrc()) + " of its header " + pageHeader);
+    }
+  }
+}
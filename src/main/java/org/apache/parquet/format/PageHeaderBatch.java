@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.util.Arrays;
+
+/**
+ * The boundaries and sizes of the consecutive pages of a column chunk, stored as one primitive array per field.
+ * Only the fields needed to plan a scan are decoded, no PageHeader is materialized.
+ *
+ * @see Util#readPageHeaderBatch(java.nio.ByteBuffer)
+ * @see Util#readPageHeaderBatch(java.nio.channels.FileChannel, ColumnMetaData)
+ */
+public final class PageHeaderBatch {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int size;
+  long[] headerOffsets = new long[INITIAL_CAPACITY];
+  int[] headerLengths = new int[INITIAL_CAPACITY];
+  int[] pageTypes = new int[INITIAL_CAPACITY];
+  int[] uncompressedPageSizes = new int[INITIAL_CAPACITY];
+  int[] compressedPageSizes = new int[INITIAL_CAPACITY];
+  int[] numValues = new int[INITIAL_CAPACITY];
+  int[] encodings = new int[INITIAL_CAPACITY];
+
+  /**
+   * @return the number of pages
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param i the index of the page
+   * @return the offset of the header of page i
+   */
+  public long getHeaderOffset(int i) {
+    checkIndex(i);
+    return headerOffsets[i];
+  }
+
+  /**
+   * @param i the index of the page
+   * @return the length in bytes of the header of page i
+   */
+  public int getHeaderLength(int i) {
+    checkIndex(i);
+    return headerLengths[i];
+  }
+
+  /**
+   * @param i the index of the page
+   * @return the offset of the content of page i (right after its header)
+   */
+  public long getPageOffset(int i) {
+    checkIndex(i);
+    return headerOffsets[i] + headerLengths[i];
+  }
+
+  public PageType getPageType(int i) {
+    checkIndex(i);
+    return PageType.findByValue(pageTypes[i]);
+  }
+
+  public int getUncompressedPageSize(int i) {
+    checkIndex(i);
+    return uncompressedPageSizes[i];
+  }
+
+  public int getCompressedPageSize(int i) {
+    checkIndex(i);
+    return compressedPageSizes[i];
+  }
+
+  /**
+   * @param i the index of the page
+   * @return the num_values of the data or dictionary page header, -1 if the page has none
+   */
+  public int getNumValues(int i) {
+    checkIndex(i);
+    return numValues[i];
+  }
+
+  /**
+   * @param i the index of the page
+   * @return the encoding of the data or dictionary page header, null if the page has none
+   */
+  public Encoding getEncoding(int i) {
+    checkIndex(i);
+    return encodings[i] == -1 ? null : Encoding.findByValue(encodings[i]);
+  }
+
+  /**
+   * appends a page and resets its fields
+   * @param headerOffset the offset of the header of the page
+   * @return the index of the new page
+   */
+  int add(long headerOffset) {
+    if (size == headerOffsets.length) {
+      int capacity = size * 2;
+      headerOffsets = Arrays.copyOf(headerOffsets, capacity);
+      headerLengths = Arrays.copyOf(headerLengths, capacity);
+      pageTypes = Arrays.copyOf(pageTypes, capacity);
+      uncompressedPageSizes = Arrays.copyOf(uncompressedPageSizes, capacity);
+      compressedPageSizes = Arrays.copyOf(compressedPageSizes, capacity);
+      numValues = Arrays.copyOf(numValues, capacity);
+      encodings = Arrays.copyOf(encodings, capacity);
+    }
+    int i = size++;
+    headerOffsets[i] = headerOffset;
+    headerLengths[i] = 0;
+    pageTypes[i] = -1;
+    uncompressedPageSizes[i] = -1;
+    compressedPageSizes[i] = -1;
+    numValues[i] = -1;
+    encodings[i] = -1;
+    return i;
+  }
+
+  private void checkIndex(int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException("page " + i + " out of " + size);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("PageHeaderBatch(");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(getPageType(i))
+        .append('@').append(headerOffsets[i])
+        .append('+').append(headerLengths[i])
+        .append(":").append(compressedPageSizes[i]);
+    }
+    return sb.append(")").toString();
+  }
+}
@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.protocol.TProtocolUtil;
+import org.apache.thrift.protocol.TType;
+
+/**
+ * Reads a PageHeader into an existing instance.
+ * Unlike the generated {@link PageHeader#read(TProtocol)}, the nested headers and statistics
+ * already referenced by the instance are cleared and refilled instead of being replaced by new objects.
+ */
+final class PageHeaderReader {
+
+  private PageHeaderReader() {
+  }
+
+  /**
+   * clears reuse and fills it with the next PageHeader in the protocol
+   * @param protocol the protocol to read from
+   * @param reuse the header to fill
+   * @return reuse
+   * @throws TException
+   */
+  static PageHeader read(TProtocol protocol, PageHeader reuse) throws TException {
+    DataPageHeader dataPageHeader = reuse.data_page_header;
+    IndexPageHeader indexPageHeader = reuse.index_page_header;
+    DictionaryPageHeader dictionaryPageHeader = reuse.dictionary_page_header;
+    DataPageHeaderV2 dataPageHeaderV2 = reuse.data_page_header_v2;
+    reuse.clear();
+    protocol.readStructBegin();
+    while (true) {
+      TField field = protocol.readFieldBegin();
+      if (field.type == TType.STOP) {
+        break;
+      }
+      switch (field.id) {
+      case 1:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setType(PageType.findByValue(protocol.readI32()));
+        }
+        break;
+      case 2:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setUncompressed_page_size(protocol.readI32());
+        }
+        break;
+      case 3:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setCompressed_page_size(protocol.readI32());
+        }
+        break;
+      case 4:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setCrc(protocol.readI32());
+        }
+        break;
+      case 5:
+        if (is(protocol, field, TType.STRUCT)) {
+          reuse.setData_page_header(read(protocol, dataPageHeader == null ? new DataPageHeader() : dataPageHeader));
+        }
+        break;
+      case 6:
+        if (is(protocol, field, TType.STRUCT)) {
+          IndexPageHeader target = indexPageHeader == null ? new IndexPageHeader() : indexPageHeader;
+          target.clear();
+          target.read(protocol);
+          reuse.setIndex_page_header(target);
+        }
+        break;
+      case 7:
+        if (is(protocol, field, TType.STRUCT)) {
+          reuse.setDictionary_page_header(read(protocol, dictionaryPageHeader == null ? new DictionaryPageHeader() : dictionaryPageHeader));
+        }
+        break;
+      case 8:
+        if (is(protocol, field, TType.STRUCT)) {
+          reuse.setData_page_header_v2(read(protocol, dataPageHeaderV2 == null ? new DataPageHeaderV2() : dataPageHeaderV2));
+        }
+        break;
+      default:
+        TProtocolUtil.skip(protocol, field.type);
+      }
+      protocol.readFieldEnd();
+    }
+    protocol.readStructEnd();
+    required(reuse.isSetUncompressed_page_size(), "uncompressed_page_size", reuse);
+    required(reuse.isSetCompressed_page_size(), "compressed_page_size", reuse);
+    reuse.validate();
+    return reuse;
+  }
+
+  private static DataPageHeader read(TProtocol protocol, DataPageHeader reuse) throws TException {
+    Statistics statistics = reuse.statistics;
+    reuse.clear();
+    protocol.readStructBegin();
+    while (true) {
+      TField field = protocol.readFieldBegin();
+      if (field.type == TType.STOP) {
+        break;
+      }
+      switch (field.id) {
+      case 1:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setNum_values(protocol.readI32());
+        }
+        break;
+      case 2:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setEncoding(Encoding.findByValue(protocol.readI32()));
+        }
+        break;
+      case 3:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setDefinition_level_encoding(Encoding.findByValue(protocol.readI32()));
+        }
+        break;
+      case 4:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setRepetition_level_encoding(Encoding.findByValue(protocol.readI32()));
+        }
+        break;
+      case 5:
+        if (is(protocol, field, TType.STRUCT)) {
+          reuse.setStatistics(read(protocol, statistics == null ? new Statistics() : statistics));
+        }
+        break;
+      default:
+        TProtocolUtil.skip(protocol, field.type);
+      }
+      protocol.readFieldEnd();
+    }
+    protocol.readStructEnd();
+    required(reuse.isSetNum_values(), "num_values", reuse);
+    reuse.validate();
+    return reuse;
+  }
+
+  private static DictionaryPageHeader read(TProtocol protocol, DictionaryPageHeader reuse) throws TException {
+    reuse.clear();
+    protocol.readStructBegin();
+    while (true) {
+      TField field = protocol.readFieldBegin();
+      if (field.type == TType.STOP) {
+        break;
+      }
+      switch (field.id) {
+      case 1:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setNum_values(protocol.readI32());
+        }
+        break;
+      case 2:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setEncoding(Encoding.findByValue(protocol.readI32()));
+        }
+        break;
+      case 3:
+        if (is(protocol, field, TType.BOOL)) {
+          reuse.setIs_sorted(protocol.readBool());
+        }
+        break;
+      default:
+        TProtocolUtil.skip(protocol, field.type);
+      }
+      protocol.readFieldEnd();
+    }
+    protocol.readStructEnd();
+    required(reuse.isSetNum_values(), "num_values", reuse);
+    reuse.validate();
+    return reuse;
+  }
+
+  private static DataPageHeaderV2 read(TProtocol protocol, DataPageHeaderV2 reuse) throws TException {
+    Statistics statistics = reuse.statistics;
+    reuse.clear();
+    protocol.readStructBegin();
+    while (true) {
+      TField field = protocol.readFieldBegin();
+      if (field.type == TType.STOP) {
+        break;
+      }
+      switch (field.id) {
+      case 1:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setNum_values(protocol.readI32());
+        }
+        break;
+      case 2:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setNum_nulls(protocol.readI32());
+        }
+        break;
+      case 3:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setNum_rows(protocol.readI32());
+        }
+        break;
+      case 4:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setEncoding(Encoding.findByValue(protocol.readI32()));
+        }
+        break;
+      case 5:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setDefinition_levels_byte_length(protocol.readI32());
+        }
+        break;
+      case 6:
+        if (is(protocol, field, TType.I32)) {
+          reuse.setRepetition_levels_byte_length(protocol.readI32());
+        }
+        break;
+      case 7:
+        if (is(protocol, field, TType.BOOL)) {
+          reuse.setIs_compressed(protocol.readBool());
+        }
+        break;
+      case 8:
+        if (is(protocol, field, TType.STRUCT)) {
+          reuse.setStatistics(read(protocol, statistics == null ? new Statistics() : statistics));
+        }
+        break;
+      default:
+        TProtocolUtil.skip(protocol, field.type);
+      }
+      protocol.readFieldEnd();
+    }
+    protocol.readStructEnd();
+    required(reuse.isSetNum_values(), "num_values", reuse);
+    required(reuse.isSetNum_nulls(), "num_nulls", reuse);
+    required(reuse.isSetNum_rows(), "num_rows", reuse);
+    required(reuse.isSetDefinition_levels_byte_length(), "definition_levels_byte_length", reuse);
+    required(reuse.isSetRepetition_levels_byte_length(), "repetition_levels_byte_length", reuse);
+    reuse.validate();
+    return reuse;
+  }
+
+  private static Statistics read(TProtocol protocol, Statistics reuse) throws TException {
+    reuse.clear();
+    protocol.readStructBegin();
+    while (true) {
+      TField field = protocol.readFieldBegin();
+      if (field.type == TType.STOP) {
+        break;
+      }
+      switch (field.id) {
+      case 1:
+        if (is(protocol, field, TType.STRING)) {
+          reuse.setMax(protocol.readBinary());
+        }
+        break;
+      case 2:
+        if (is(protocol, field, TType.STRING)) {
+          reuse.setMin(protocol.readBinary());
+        }
+        break;
+      case 3:
+        if (is(protocol, field, TType.I64)) {
+          reuse.setNull_count(protocol.readI64());
+        }
+        break;
+      case 4:
+        if (is(protocol, field, TType.I64)) {
+          reuse.setDistinct_count(protocol.readI64());
+        }
+        break;
+      default:
+        TProtocolUtil.skip(protocol, field.type);
+      }
+      protocol.readFieldEnd();
+    }
+    protocol.readStructEnd();
+    reuse.validate();
+    return reuse;
+  }
+
+  /**
+   * reads the next PageHeader in the protocol into page i of the batch.
+   * Only the sizes, type, num_values and encoding are decoded, everything else is skipped.
+   * @param protocol the protocol to read from
+   * @param batch the batch to fill
+   * @param i the index of the page in the batch
+   * @throws TException
+   */
+  static void read(TProtocol protocol, PageHeaderBatch batch, int i) throws TException {
+    protocol.readStructBegin();
+    while (true) {
+      TField field = protocol.readFieldBegin();
+      if (field.type == TType.STOP) {
+        break;
+      }
+      switch (field.id) {
+      case 1:
+        if (is(protocol, field, TType.I32)) {
+          batch.pageTypes[i] = protocol.readI32();
+        }
+        break;
+      case 2:
+        if (is(protocol, field, TType.I32)) {
+          batch.uncompressedPageSizes[i] = protocol.readI32();
+        }
+        break;
+      case 3:
+        if (is(protocol, field, TType.I32)) {
+          batch.compressedPageSizes[i] = protocol.readI32();
+        }
+        break;
+      case 5: // data_page_header
+      case 7: // dictionary_page_header
+        if (is(protocol, field, TType.STRUCT)) {
+          readNumValuesAndEncoding(protocol, batch, i, (short) 2);
+        }
+        break;
+      case 8: // data_page_header_v2
+        if (is(protocol, field, TType.STRUCT)) {
+          readNumValuesAndEncoding(protocol, batch, i, (short) 4);
+        }
+        break;
+      default:
+        TProtocolUtil.skip(protocol, field.type);
+      }
+      protocol.readFieldEnd();
+    }
+    protocol.readStructEnd();
+    required(batch.pageTypes[i] != -1, "type", "PageHeader");
+    required(batch.uncompressedPageSizes[i] != -1, "uncompressed_page_size", "PageHeader");
+    required(batch.compressedPageSizes[i] != -1, "compressed_page_size", "PageHeader");
+  }
+
+  /**
+   * num_values is field 1 of all the page specific headers, the id of the encoding field varies
+   */
+  private static void readNumValuesAndEncoding(TProtocol protocol, PageHeaderBatch batch, int i, short encodingFieldId) throws TException {
+    protocol.readStructBegin();
+    while (true) {
+      TField field = protocol.readFieldBegin();
+      if (field.type == TType.STOP) {
+        break;
+      }
+      if (field.id == 1 && field.type == TType.I32) {
+        batch.numValues[i] = protocol.readI32();
+      } else if (field.id == encodingFieldId && field.type == TType.I32) {
+        batch.encodings[i] = protocol.readI32();
+      } else {
+        TProtocolUtil.skip(protocol, field.type);
+      }
+      protocol.readFieldEnd();
+    }
+    protocol.readStructEnd();
+  }
+
+  /**
+   * skips the field if it does not have the expected type, as the generated code does
+   */
+  static boolean is(TProtocol protocol, TField field, byte type) throws TException {
+    if (field.type == type) {
+      return true;
+    }
+    TProtocolUtil.skip(protocol, field.type);
+    return false;
+  }
+
+  static void required(boolean isSet, String fieldName, Object struct) throws TProtocolException {
+    if (!isSet) {
+      throw new TProtocolException("Required field '" + fieldName + "' was not found in serialized data! Struct: " + struct.toString());
+    }
+  }
+}
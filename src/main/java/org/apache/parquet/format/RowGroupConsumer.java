@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import static org.apache.parquet.format.RowGroup._Fields.COLUMNS;
+import static org.apache.parquet.format.RowGroup._Fields.NUM_ROWS;
+import static org.apache.parquet.format.RowGroup._Fields.SORTING_COLUMNS;
+import static org.apache.parquet.format.RowGroup._Fields.TOTAL_BYTE_SIZE;
+import static org.apache.parquet.format.event.Consumers.fieldConsumer;
+import static org.apache.parquet.format.event.Consumers.listOf;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.protocol.TProtocolUtil;
+
+import org.apache.parquet.format.event.Consumers.Consumer;
+import org.apache.parquet.format.event.Consumers.DelegatingFieldConsumer;
+import org.apache.parquet.format.event.EventBasedThriftReader;
+import org.apache.parquet.format.event.TypedConsumer.I64Consumer;
+import org.apache.parquet.format.event.TypedConsumer.ListConsumer;
+import org.apache.parquet.format.event.TypedConsumer.StructConsumer;
+
+/**
+ * Reads RowGroups field by field, skipping the ColumnChunks that are not projected,
+ * the row groups rejected by the filter and the ones the predicate proves have no matching row.
+ * One instance is used for all the row groups of a footer.
+ */
+class RowGroupConsumer extends StructConsumer {
+
+  private final Consumer<RowGroup> consumer;
+  private final ColumnProjection projection;
+  private final RowGroupFilter filter;
+  private final StatisticsPredicate predicate;
+  private final ColumnProjection predicateProjection;
+  private List<SchemaElement> schema;
+  private boolean resolved;
+  private BitSet projectedColumns;
+  private BitSet predicateColumns;
+  private int lastPredicateColumn;
+
+  private RowGroup rowGroup;
+  private int rowGroupIndex;
+  private int columnIndex;
+  private boolean skipped;
+  private boolean evaluated;
+  private final Map<List<String>, ColumnMetaData> predicateValues = new HashMap<List<String>, ColumnMetaData>();
+
+  private final DelegatingFieldConsumer fieldConsumer = fieldConsumer()
+      .onField(COLUMNS, new ListConsumer() {
+        @Override
+        public void consumeList(TProtocol protocol, EventBasedThriftReader reader, TList tList) throws TException {
+          rowGroup.setColumns(new ArrayList<ColumnChunk>(projectedColumns == null ? tList.size : Math.min(tList.size, projectedColumns.cardinality())));
+          columnIndex = 0;
+          super.consumeList(protocol, reader, tList);
+          if (predicate != null && !evaluated && !skipped) {
+            // some of the columns of the predicate are missing
+            skipped = predicate.canDrop(predicateValues);
+          }
+        }
+
+        @Override
+        public void consumeElement(TProtocol protocol, EventBasedThriftReader reader, byte elemType) throws TException {
+          boolean projected = projectedColumns == null || projectedColumns.get(columnIndex);
+          // the filter and the predicate need their columns even if they are not projected
+          boolean filtered = filter != null && columnIndex == 0;
+          boolean predicated = predicateColumns != null && predicateColumns.get(columnIndex);
+          if (skipped || !(projected || filtered || predicated)) {
+            TProtocolUtil.skip(protocol, elemType);
+          } else {
+            ColumnChunk columnChunk = new ColumnChunk();
+            columnChunk.read(protocol);
+            if (filtered) {
+              skipped = !filter.keep(rowGroupIndex, columnChunk);
+            }
+            if (predicated && columnChunk.isSetMeta_data()) {
+              predicateValues.put(columnChunk.getMeta_data().getPath_in_schema(), columnChunk.getMeta_data());
+            }
+            if (columnIndex == lastPredicateColumn && !skipped) {
+              skipped = predicate.canDrop(predicateValues);
+              evaluated = true;
+            }
+            if (projected && !skipped) {
+              rowGroup.addToColumns(columnChunk);
+            }
+          }
+          ++columnIndex;
+        }
+      }).onField(TOTAL_BYTE_SIZE, new I64Consumer() {
+        @Override
+        public void consume(long value) {
+          rowGroup.setTotal_byte_size(value);
+        }
+      }).onField(NUM_ROWS, new I64Consumer() {
+        @Override
+        public void consume(long value) {
+          rowGroup.setNum_rows(value);
+        }
+      }).onField(SORTING_COLUMNS, listOf(SortingColumn.class, new Consumer<List<SortingColumn>>() {
+        @Override
+        public void consume(List<SortingColumn> sortingColumns) {
+          rowGroup.setSorting_columns(sortingColumns);
+        }
+      }));
+
+  /**
+   * @param consumer receives the row groups
+   * @param projection the columns to read, null for all
+   * @param filter the row groups to read, null for all
+   * @param predicate the predicate the row groups must possibly match, null for all
+   */
+  RowGroupConsumer(Consumer<RowGroup> consumer, ColumnProjection projection, RowGroupFilter filter, StatisticsPredicate predicate) {
+    this.consumer = consumer;
+    this.projection = projection;
+    this.filter = filter;
+    this.predicate = predicate;
+    if (predicate != null) {
+      Set<List<String>> paths = new HashSet<List<String>>();
+      predicate.collectPaths(paths);
+      this.predicateProjection = ColumnProjection.paths(paths);
+    } else {
+      this.predicateProjection = null;
+    }
+  }
+
+  /**
+   * called when the schema has been read, to resolve the columns by path
+   * @param schema the schema of the file
+   */
+  void setSchema(List<SchemaElement> schema) {
+    this.schema = schema;
+    this.resolved = false;
+  }
+
+  private void resolve() throws TException {
+    projectedColumns = resolve(projection);
+    predicateColumns = resolve(predicateProjection);
+    lastPredicateColumn = predicateColumns == null ? -1 : predicateColumns.length() - 1;
+    resolved = true;
+  }
+
+  private BitSet resolve(ColumnProjection columns) throws TException {
+    if (columns == null) {
+      return null;
+    }
+    BitSet result;
+    try {
+      result = columns.resolve(schema);
+    } catch (IllegalArgumentException e) {
+      throw new TException("can not apply " + columns + ": " + e.getMessage(), e);
+    }
+    if (result == null) {
+      throw new TException("the schema must precede the row groups to apply " + columns);
+    }
+    return result;
+  }
+
+  @Override
+  public void consumeStruct(TProtocol protocol, EventBasedThriftReader reader) throws TException {
+    if (!resolved) {
+      resolve();
+    }
+    rowGroup = new RowGroup();
+    skipped = false;
+    evaluated = false;
+    predicateValues.clear();
+    reader.readStruct(fieldConsumer);
+    ++rowGroupIndex;
+    if (skipped) {
+      rowGroup = null;
+      return;
+    }
+    if (!rowGroup.isSetTotal_byte_size()) {
+      throw new TProtocolException("Required field 'total_byte_size' was not found in serialized data! Struct: " + rowGroup);
+    }
+    if (!rowGroup.isSetNum_rows()) {
+      throw new TProtocolException("Required field 'num_rows' was not found in serialized data! Struct: " + rowGroup);
+    }
+    rowGroup.validate();
+    RowGroup result = rowGroup;
+    rowGroup = null;
+    consumer.consume(result);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+/**
+ * Decides whether a RowGroup should be read while reading the FileMetaData.
+ * The decision is made as soon as the first ColumnChunk of the row group has been decoded,
+ * the rest of a rejected row group is skipped without being materialized
+ * and it is not passed to the {@link Util.FileMetaDataConsumer}.
+ * RowGroups without columns are always kept.
+ *
+ * @see Util#readFileMetaData(java.io.InputStream, Util.FileMetaDataConsumer, RowGroupFilter)
+ */
+public abstract class RowGroupFilter {
+
+  /**
+   * Keeps the row groups starting in [start, end), this assigns each row group to exactly one split
+   * when the splits of a file are contiguous.
+   * @param start the first byte of the range
+   * @param end the first byte after the range
+   * @return the filter
+   * @see #getStartingPosition(ColumnChunk)
+   */
+  public static RowGroupFilter startingIn(final long start, final long end) {
+    return new RowGroupFilter() {
+      @Override
+      public boolean keep(int rowGroupIndex, ColumnChunk firstColumn) {
+        long startingPosition = getStartingPosition(firstColumn);
+        return startingPosition >= start && startingPosition < end;
+      }
+
+      @Override
+      public String toString() {
+        return "RowGroupFilter(starting in [" + start + ", " + end + "))";
+      }
+    };
+  }
+
+  /**
+   * @param firstColumn the first ColumnChunk of a row group
+   * @return the position of the first page of the row group: the dictionary page if there is one,
+   * the first data page otherwise. The ColumnChunk file_offset if it has no ColumnMetaData.
+   */
+  public static long getStartingPosition(ColumnChunk firstColumn) {
+    ColumnMetaData md = firstColumn.getMeta_data();
+    return md == null ? firstColumn.getFile_offset() : Util.startingPosition(md);
+  }
+
+  /**
+   * @param rowGroupIndex the index of the row group in the file
+   * @param firstColumn the first ColumnChunk of the row group
+   * @return whether the row group should be read
+   */
+  public abstract boolean keep(int rowGroupIndex, ColumnChunk firstColumn);
+}
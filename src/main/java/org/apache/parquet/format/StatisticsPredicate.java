@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import static java.util.Arrays.asList;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A predicate on the rows of a RowGroup, evaluated against the statistics (min, max, null_count)
+ * of its ColumnChunks to drop the row groups in which no row can match.
+ * The evaluation is conservative: a row group is kept whenever the statistics can not prove that no row matches,
+ * in particular when they are missing or for types that have no reliable ordering of their statistics
+ * (only BOOLEAN, INT32, INT64, FLOAT and DOUBLE columns are used).
+ *
+ * Values are compared with the type of the column: integral values (Integer, Long, Short, Byte) for INT32 and INT64,
+ * any Number for FLOAT and DOUBLE, Boolean for BOOLEAN.
+ *
+ * @see Util#readFileMetaData(java.io.InputStream, Util.FileMetaDataConsumer, StatisticsPredicate)
+ */
+public abstract class StatisticsPredicate {
+
+  /**
+   * @param path the path_in_schema of the column
+   * @param value the value
+   * @return column == value
+   */
+  public static StatisticsPredicate eq(List<String> path, final Object value) {
+    return new ColumnPredicate(path, "==", value) {
+      @Override
+      boolean canDrop(ColumnMetaData md) {
+        Object v = normalize(value, md.getType());
+        return allNull(md) || isLess(v, min(md)) || isLess(max(md), v);
+      }
+    };
+  }
+
+  /**
+   * @param path the path_in_schema of the column
+   * @param value the value
+   * @return column < value
+   */
+  public static StatisticsPredicate lt(List<String> path, final Object value) {
+    return new ColumnPredicate(path, "<", value) {
+      @Override
+      boolean canDrop(ColumnMetaData md) {
+        return allNull(md) || isLessOrEqual(normalize(value, md.getType()), min(md));
+      }
+    };
+  }
+
+  /**
+   * @param path the path_in_schema of the column
+   * @param value the value
+   * @return column > value
+   */
+  public static StatisticsPredicate gt(List<String> path, final Object value) {
+    return new ColumnPredicate(path, ">", value) {
+      @Override
+      boolean canDrop(ColumnMetaData md) {
+        return allNull(md) || isLessOrEqual(max(md), normalize(value, md.getType()));
+      }
+    };
+  }
+
+  /**
+   * @param path the path_in_schema of the column
+   * @param lower the lower bound (inclusive)
+   * @param upper the upper bound (inclusive)
+   * @return lower <= column <= upper
+   */
+  public static StatisticsPredicate between(List<String> path, final Object lower, final Object upper) {
+    return new ColumnPredicate(path, "between", asList(lower, upper)) {
+      @Override
+      boolean canDrop(ColumnMetaData md) {
+        return allNull(md)
+            || isLess(max(md), normalize(lower, md.getType()))
+            || isLess(normalize(upper, md.getType()), min(md));
+      }
+    };
+  }
+
+  /**
+   * @param path the path_in_schema of the column
+   * @param values the values
+   * @return column in values
+   */
+  public static StatisticsPredicate in(List<String> path, final Collection<?> values) {
+    return new ColumnPredicate(path, "in", values) {
+      @Override
+      boolean canDrop(ColumnMetaData md) {
+        if (allNull(md)) {
+          return true;
+        }
+        Object min = min(md);
+        Object max = max(md);
+        for (Object value : values) {
+          Object v = normalize(value, md.getType());
+          if (!isLess(v, min) && !isLess(max, v)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+
+  /**
+   * @param path the path_in_schema of the column
+   * @return column is null
+   */
+  public static StatisticsPredicate isNull(List<String> path) {
+    return new ColumnPredicate(path, "is null", null) {
+      @Override
+      boolean canDrop(ColumnMetaData md) {
+        Statistics statistics = md.getStatistics();
+        return statistics != null && statistics.isSetNull_count() && statistics.getNull_count() == 0;
+      }
+    };
+  }
+
+  /**
+   * @param predicates the predicates
+   * @return true if all the predicates are true
+   */
+  public static StatisticsPredicate and(final StatisticsPredicate... predicates) {
+    return new StatisticsPredicate() {
+      @Override
+      boolean canDrop(Map<List<String>, ColumnMetaData> columns) {
+        for (StatisticsPredicate predicate : predicates) {
+          if (predicate.canDrop(columns)) {
+            return true;
+          }
+        }
+        return false;
+      }
+
+      @Override
+      void collectPaths(Set<List<String>> paths) {
+        for (StatisticsPredicate predicate : predicates) {
+          predicate.collectPaths(paths);
+        }
+      }
+
+      @Override
+      public String toString() {
+        return "and" + asList(predicates);
+      }
+    };
+  }
+
+  /**
+   * @param predicates the predicates
+   * @return true if one of the predicates is true
+   */
+  public static StatisticsPredicate or(final StatisticsPredicate... predicates) {
+    return new StatisticsPredicate() {
+      @Override
+      boolean canDrop(Map<List<String>, ColumnMetaData> columns) {
+        for (StatisticsPredicate predicate : predicates) {
+          if (!predicate.canDrop(columns)) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      @Override
+      void collectPaths(Set<List<String>> paths) {
+        for (StatisticsPredicate predicate : predicates) {
+          predicate.collectPaths(paths);
+        }
+      }
+
+      @Override
+      public String toString() {
+        return "or" + asList(predicates);
+      }
+    };
+  }
+
+  StatisticsPredicate() {
+  }
+
+  /**
+   * @param columns the metadata of the columns used by this predicate, by path_in_schema
+   * @return true if the statistics prove that no row of the row group matches
+   */
+  abstract boolean canDrop(Map<List<String>, ColumnMetaData> columns);
+
+  /**
+   * @param paths receives the paths of the columns used by this predicate
+   */
+  abstract void collectPaths(Set<List<String>> paths);
+
+  /**
+   * a predicate on a single column
+   */
+  private abstract static class ColumnPredicate extends StatisticsPredicate {
+
+    private final List<String> path;
+    private final String operator;
+    private final Object operand;
+
+    ColumnPredicate(List<String> path, String operator, Object operand) {
+      this.path = new ArrayList<String>(path);
+      this.operator = operator;
+      this.operand = operand;
+    }
+
+    @Override
+    final boolean canDrop(Map<List<String>, ColumnMetaData> columns) {
+      ColumnMetaData md = columns.get(path);
+      if (md == null) {
+        return false;
+      }
+      return canDrop(md);
+    }
+
+    abstract boolean canDrop(ColumnMetaData md);
+
+    @Override
+    final void collectPaths(Set<List<String>> paths) {
+      paths.add(path);
+    }
+
+    static boolean allNull(ColumnMetaData md) {
+      Statistics statistics = md.getStatistics();
+      return statistics != null && statistics.isSetNull_count() && statistics.getNull_count() == md.getNum_values();
+    }
+
+    static Object min(ColumnMetaData md) {
+      Statistics statistics = md.getStatistics();
+      return statistics == null ? null : decode(statistics.bufferForMin(), md.getType());
+    }
+
+    static Object max(ColumnMetaData md) {
+      Statistics statistics = md.getStatistics();
+      return statistics == null ? null : decode(statistics.bufferForMax(), md.getType());
+    }
+
+    /**
+     * @return the PLAIN encoded value as a Long, Double or Boolean or null if this type is not supported
+     */
+    private static Object decode(ByteBuffer value, Type type) {
+      if (value == null) {
+        return null;
+      }
+      ByteBuffer le = value.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      switch (type) {
+      case BOOLEAN:
+        return le.remaining() == 1 ? Boolean.valueOf(le.get() != 0) : null;
+      case INT32:
+        return le.remaining() == 4 ? Long.valueOf(le.getInt()) : null;
+      case INT64:
+        return le.remaining() == 8 ? Long.valueOf(le.getLong()) : null;
+      case FLOAT:
+        return le.remaining() == 4 ? Double.valueOf(le.getFloat()) : null;
+      case DOUBLE:
+        return le.remaining() == 8 ? Double.valueOf(le.getDouble()) : null;
+      default:
+        return null;
+      }
+    }
+
+    static boolean isLess(Object a, Object b) {
+      Integer c = compare(a, b);
+      return c != null && c < 0;
+    }
+
+    static boolean isLessOrEqual(Object a, Object b) {
+      Integer c = compare(a, b);
+      return c != null && c <= 0;
+    }
+
+    /**
+     * @return the comparison of normalized values or null if they can not be compared
+     */
+    private static Integer compare(Object x, Object y) {
+      if (x == null || y == null || x.getClass() != y.getClass()) {
+        return null;
+      }
+      if (x instanceof Double) {
+        double dx = (Double) x;
+        double dy = (Double) y;
+        if (Double.isNaN(dx) || Double.isNaN(dy)) {
+          return null;
+        }
+        return dx < dy ? -1 : (dx > dy ? 1 : 0);
+      }
+      if (x instanceof Long) {
+        return ((Long) x).compareTo((Long) y);
+      }
+      return ((Boolean) x).compareTo((Boolean) y);
+    }
+
+    /**
+     * converts a value to the representation of the type of the column (Long, Double or Boolean), null if not possible
+     */
+    static Object normalize(Object value, Type type) {
+      switch (type) {
+      case BOOLEAN:
+        return value instanceof Boolean ? value : null;
+      case INT32:
+      case INT64:
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+          return ((Number) value).longValue();
+        }
+        return null;
+      case FLOAT:
+      case DOUBLE:
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+      default:
+        return null;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return path + " " + operator + (operand == null ? "" : " " + operand);
+    }
+  }
+}
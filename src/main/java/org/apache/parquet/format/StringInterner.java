@@ -0,0 +1,471 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Returns a canonical instance for equal strings so that the many copies of the same
+ * column names, paths and created_by values decoded from footers share their memory.
+ * Implementations are thread safe.
+ *
+ * Interners count their hits to tell whether interning saves memory. They are MXBeans:
+ * <pre>
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(StringInterner.shared(),
+ *     new ObjectName("org.apache.parquet.format:type=StringInterner,name=shared"));
+ * </pre>
+ *
+ * @see InterningProtocol
+ */
+public abstract class StringInterner implements StringInternerMXBean {
+
+  public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+  private static final int STRIPE_BITS = 6;
+  private static final int STRIPES = 1 << STRIPE_BITS;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final StringInterner JVM = new StringInterner() {
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong uniqueCount = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    @Override
+    public String intern(String s) {
+      if (s == null) {
+        return null;
+      }
+      String canonical = s.intern();
+      if (canonical != s) {
+        hitCount.incrementAndGet();
+        bytesSaved.addAndGet(sizeOf(s));
+      } else {
+        uniqueCount.incrementAndGet();
+      }
+      return canonical;
+    }
+
+    @Override
+    public InterningStats getStats() {
+      // the JVM string table is not observable
+      return new InterningStats(hitCount.get(), uniqueCount.get(), bytesSaved.get(), -1, -1);
+    }
+
+    @Override
+    public String toString() {
+      return "StringInterner(String.intern)";
+    }
+  };
+
+  private static final StringInterner SHARED = bounded(DEFAULT_MAX_SIZE);
+
+  /**
+   * @return the interner of the JVM: String.intern(). All threads contend on the JVM string table and entries are never freed.
+   */
+  public static StringInterner jvm() {
+    return JVM;
+  }
+
+  /**
+   * @return the bounded interner shared by the whole process, used by default
+   */
+  public static StringInterner shared() {
+    return SHARED;
+  }
+
+  /**
+   * An interner keeping at most maxSize strings (and the UTF-8 encoding of those interned from bytes),
+   * split in stripes locked independently.
+   * Each stripe evicts its least recently used strings with their encoding: frequent strings stay canonical,
+   * rare ones may be returned as is after their eviction.
+   * @param maxSize the maximum number of strings retained
+   * @return a new interner
+   */
+  public static StringInterner bounded(int maxSize) {
+    if (maxSize < STRIPES) {
+      throw new IllegalArgumentException("max size must be at least " + STRIPES + ": " + maxSize);
+    }
+    return new BoundedInterner(maxSize);
+  }
+
+  /**
+   * @return an unbounded interner for the strings of a single read, discarded with it
+   */
+  static StringInterner scoped() {
+    return new ScopedInterner();
+  }
+
+  StringInterner() {
+  }
+
+  /**
+   * @param s a string
+   * @return the canonical instance equal to s (possibly s itself), null if s is null
+   */
+  public abstract String intern(String s);
+
+  /**
+   * @param utf8 a buffer containing the UTF-8 encoding of a string
+   * @param offset the offset of the string in the buffer
+   * @param length the length of the encoded string
+   * @return the canonical instance of the decoded string
+   */
+  public String intern(byte[] utf8, int offset, int length) {
+    return intern(new String(utf8, offset, length, UTF8));
+  }
+
+  /**
+   * @return a snapshot of the counters of this interner
+   */
+  public abstract InterningStats getStats();
+
+  @Override
+  public long getInternCount() {
+    return getStats().getInternCount();
+  }
+
+  @Override
+  public long getHitCount() {
+    return getStats().getHitCount();
+  }
+
+  @Override
+  public long getUniqueCount() {
+    return getStats().getUniqueCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    return getStats().getHitRate();
+  }
+
+  @Override
+  public long getBytesSaved() {
+    return getStats().getBytesSaved();
+  }
+
+  @Override
+  public int getSize() {
+    return getStats().getSize();
+  }
+
+  @Override
+  public long getRetainedBytes() {
+    return getStats().getRetainedBytes();
+  }
+
+  /**
+   * @return the heap retained by a String of this length and its char array, assuming compressed references
+   */
+  static long sizeOf(String s) {
+    return 24 + align(16 + 2L * s.length());
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  /**
+   * the top bits of a multiplicative (Fibonacci) hash depend on all the bits of the hash:
+   * short strings, whose hashes only differ in their low bits, spread over all the stripes
+   */
+  static int stripeIndex(int hash) {
+    return (hash * 0x9E3779B9) >>> (32 - STRIPE_BITS);
+  }
+
+  /**
+   * a range of bytes, the keys of the strings interned from their encoding
+   */
+  private static final class Bytes {
+    private byte[] bytes;
+    private int offset;
+    private int length;
+    private int hash;
+
+    static int hash(byte[] bytes, int offset, int length) {
+      int hash = 1;
+      for (int i = offset; i < offset + length; i++) {
+        hash = 31 * hash + bytes[i];
+      }
+      return hash;
+    }
+
+    Bytes set(byte[] bytes, int offset, int length, int hash) {
+      this.bytes = bytes;
+      this.offset = offset;
+      this.length = length;
+      this.hash = hash;
+      return this;
+    }
+
+    Bytes copy() {
+      Bytes copy = new Bytes();
+      copy.bytes = Arrays.copyOfRange(bytes, offset, offset + length);
+      copy.length = length;
+      copy.hash = hash;
+      return copy;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Bytes)) {
+        return false;
+      }
+      Bytes other = (Bytes) obj;
+      if (hash != other.hash || length != other.length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (bytes[offset + i] != other.bytes[other.offset + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class ScopedInterner extends StringInterner {
+    // a HashMap entry
+    private static final int ENTRY = 32;
+
+    private final Map<String, String> strings = new HashMap<String, String>();
+    private long hitCount;
+    private long bytesSaved;
+    private long retainedBytes;
+
+    @Override
+    public synchronized String intern(String s) {
+      if (s == null) {
+        return null;
+      }
+      String canonical = strings.get(s);
+      if (canonical == null) {
+        strings.put(s, s);
+        retainedBytes += ENTRY + sizeOf(s);
+        return s;
+      }
+      ++hitCount;
+      bytesSaved += sizeOf(s);
+      return canonical;
+    }
+
+    @Override
+    public synchronized InterningStats getStats() {
+      return new InterningStats(hitCount, strings.size(), bytesSaved, strings.size(), retainedBytes);
+    }
+
+    @Override
+    public String toString() {
+      return "StringInterner(scoped)";
+    }
+  }
+
+  private static final class BoundedInterner extends StringInterner {
+
+    // a LinkedHashMap entry and its Canonical
+    private static final int STRING_ENTRY = 40 + 24;
+    // a HashMap entry and its Bytes key without the array
+    private static final int BYTES_ENTRY = 32 + 32;
+
+    /**
+     * a canonical string and the key of its encoding in the bytes stripes, if any
+     */
+    private static final class Canonical {
+      private final String string;
+      private Bytes encoding;
+
+      Canonical(String string) {
+        this.string = string;
+      }
+    }
+
+    /**
+     * the canonical strings of a range of hashes, the least recently used are evicted with their encoding
+     */
+    private final class StringStripe extends LinkedHashMap<String, Canonical> {
+      private static final long serialVersionUID = 1L;
+      private final int maxSize;
+      // counted under the lock of the stripe
+      private long hitCount;
+      private long uniqueCount;
+      private long bytesSaved;
+      private long retainedBytes;
+
+      StringStripe(int maxSize) {
+        super(16, 0.75f, true);
+        this.maxSize = maxSize;
+      }
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Canonical> eldest) {
+        if (size() <= maxSize) {
+          return false;
+        }
+        Canonical canonical = eldest.getValue();
+        retainedBytes -= STRING_ENTRY + sizeOf(canonical.string);
+        if (canonical.encoding != null) {
+          // a string is never returned by the byte path once it is not canonical anymore
+          removeEncoding(canonical.encoding);
+        }
+        return true;
+      }
+    }
+
+    /**
+     * the canonical strings of a range of encodings, each of them is the encoding of a Canonical of the string stripes
+     */
+    private static final class BytesStripe extends HashMap<Bytes, String> {
+      private static final long serialVersionUID = 1L;
+      // the lookup key, reused under the lock of the stripe
+      private final Bytes probe = new Bytes();
+      // counted under the lock of the stripe
+      private long hitCount;
+      private long bytesSaved;
+      private long retainedBytes;
+    }
+
+    // locks are taken in this order: a string stripe, then a bytes stripe
+    private final StringStripe[] stripes = new StringStripe[STRIPES];
+    private final BytesStripe[] byteStripes = new BytesStripe[STRIPES];
+    private final int maxSize;
+
+    BoundedInterner(int maxSize) {
+      this.maxSize = maxSize;
+      for (int i = 0; i < STRIPES; i++) {
+        stripes[i] = new StringStripe(maxSize / STRIPES);
+        byteStripes[i] = new BytesStripe();
+      }
+    }
+
+    @Override
+    public String intern(String s) {
+      if (s == null) {
+        return null;
+      }
+      StringStripe stripe = stripes[stripeIndex(s.hashCode())];
+      synchronized (stripe) {
+        return intern(stripe, s).string;
+      }
+    }
+
+    /**
+     * called with the lock of the stripe
+     */
+    private Canonical intern(StringStripe stripe, String s) {
+      Canonical canonical = stripe.get(s);
+      if (canonical == null) {
+        canonical = new Canonical(s);
+        stripe.retainedBytes += STRING_ENTRY + sizeOf(s);
+        ++stripe.uniqueCount;
+        stripe.put(s, canonical);
+        return canonical;
+      }
+      ++stripe.hitCount;
+      stripe.bytesSaved += sizeOf(s);
+      return canonical;
+    }
+
+    /**
+     * finds the canonical string without decoding the bytes when they have already been seen
+     */
+    @Override
+    public String intern(byte[] utf8, int offset, int length) {
+      int hash = Bytes.hash(utf8, offset, length);
+      BytesStripe bytesStripe = byteStripes[stripeIndex(hash)];
+      Bytes key;
+      synchronized (bytesStripe) {
+        String canonical = bytesStripe.get(bytesStripe.probe.set(utf8, offset, length, hash));
+        key = canonical == null ? bytesStripe.probe.copy() : null;
+        // do not retain the caller's buffer
+        bytesStripe.probe.set(null, 0, 0, 0);
+        if (canonical != null) {
+          // the string stripes count the misses
+          ++bytesStripe.hitCount;
+          bytesStripe.bytesSaved += sizeOf(canonical);
+          return canonical;
+        }
+      }
+      String s = new String(utf8, offset, length, UTF8);
+      StringStripe stripe = stripes[stripeIndex(s.hashCode())];
+      synchronized (stripe) {
+        // the encoding is added while the string is canonical and removed when it is evicted.
+        // A string has at most one encoding (malformed UTF-8 may decode to the same string)
+        Canonical canonical = intern(stripe, s);
+        if (canonical.encoding == null) {
+          synchronized (bytesStripe) {
+            bytesStripe.put(key, canonical.string);
+            bytesStripe.retainedBytes += BYTES_ENTRY + align(16 + length);
+          }
+          canonical.encoding = key;
+        }
+        return canonical.string;
+      }
+    }
+
+    /**
+     * called with the lock of the stripe of the string
+     */
+    private void removeEncoding(Bytes encoding) {
+      BytesStripe bytesStripe = byteStripes[stripeIndex(encoding.hash)];
+      synchronized (bytesStripe) {
+        bytesStripe.remove(encoding);
+        bytesStripe.retainedBytes -= BYTES_ENTRY + align(16 + encoding.length);
+      }
+    }
+
+    @Override
+    public InterningStats getStats() {
+      long hitCount = 0;
+      long uniqueCount = 0;
+      long bytesSaved = 0;
+      long retainedBytes = 0;
+      int size = 0;
+      for (int i = 0; i < STRIPES; i++) {
+        synchronized (stripes[i]) {
+          hitCount += stripes[i].hitCount;
+          uniqueCount += stripes[i].uniqueCount;
+          bytesSaved += stripes[i].bytesSaved;
+          retainedBytes += stripes[i].retainedBytes;
+          size += stripes[i].size();
+        }
+        synchronized (byteStripes[i]) {
+          hitCount += byteStripes[i].hitCount;
+          bytesSaved += byteStripes[i].bytesSaved;
+          retainedBytes += byteStripes[i].retainedBytes;
+        }
+      }
+      return new InterningStats(hitCount, uniqueCount, bytesSaved, size, retainedBytes);
+    }
+
+    @Override
+    public String toString() {
+      return "StringInterner(bounded to " + maxSize + " strings in " + STRIPES + " stripes)";
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+/**
+ * The effectiveness of a {@link StringInterner}, as exposed through JMX.
+ * Implemented by the interners themselves (live values) and by {@link InterningStats} (a snapshot).
+ */
+public interface StringInternerMXBean {
+
+  /**
+   * @return the number of strings interned
+   */
+  long getInternCount();
+
+  /**
+   * @return the number of strings for which an equal canonical instance was returned
+   */
+  long getHitCount();
+
+  /**
+   * @return the number of strings that became canonical instances (some of them may have been evicted since)
+   */
+  long getUniqueCount();
+
+  /**
+   * @return the fraction of the strings interned that were hits, 0 if none was interned
+   */
+  double getHitRate();
+
+  /**
+   * @return an estimate of the heap not retained thanks to the hits: the size of the duplicate strings replaced
+   */
+  long getBytesSaved();
+
+  /**
+   * @return the number of canonical instances retained, -1 if unknown
+   */
+  int getSize();
+
+  /**
+   * @return an estimate of the heap retained by the interner: the canonical strings,
+   * the copies of their UTF-8 encoding kept to intern from bytes and the table entries. -1 if unknown
+   */
+  long getRetainedBytes();
+}
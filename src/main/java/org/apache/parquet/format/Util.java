@@ -30,9 +30,15 @@ import static org.apache.parquet.format.event.Consumers.listElementsOf;
 import static org.apache.parquet.format.event.Consumers.listOf;
 import static org.apache.parquet.format.event.Consumers.struct;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.thrift.TBase;
@@ -40,6 +46,7 @@ import org.apache.thrift.TException;
 import org.apache.thrift.protocol.TCompactProtocol;
 import org.apache.thrift.protocol.TProtocol;
 import org.apache.thrift.transport.TIOStreamTransport;
+import org.apache.thrift.transport.TTransport;
 
 import org.apache.parquet.format.event.Consumers.Consumer;
 import org.apache.parquet.format.event.Consumers.DelegatingFieldConsumer;
@@ -51,27 +58,366 @@ import org.apache.parquet.format.event.TypedConsumer.StringConsumer;
 /**
  * Utility to read/write metadata
  * We use the TCompactProtocol to serialize metadata
+ * The ColumnMetaData of the row groups read from a footer share their path_in_schema and encodings lists,
+ * which are unmodifiable: replace them rather than modifying them.
  *
  * @author Julien Le Dem
  *
  */
 public class Util {
 
+  /**
+   * the magic number at the beginning and end of a parquet file
+   */
+  static final byte[] MAGIC = { 'P', 'A', 'R', '1' };
+
+  /**
+   * the footer is followed by its length (4 bytes little endian) and the magic number
+   */
+  static final int FOOTER_TAIL_LENGTH = 4 + MAGIC.length;
+
   public static void writePageHeader(PageHeader pageHeader, OutputStream to) throws IOException {
     write(pageHeader, to);
   }
 
+  /**
+   * writes a page header at the position of the buffer, which is advanced past it.
+   * If the header does not fit, the position is left unchanged and an IOException is thrown.
+   * @param pageHeader the page header
+   * @param to the buffer to write to
+   * @throws IOException if the header does not fit in the remaining space or is invalid
+   */
+  public static void writePageHeader(PageHeader pageHeader, ByteBuffer to) throws IOException {
+    write(pageHeader, to, protocol(to));
+  }
+
+  /**
+   * encodes a page header into a scratch buffer and writes it to the channel.
+   * A direct scratch buffer reused across calls avoids the copy channels make from heap buffers.
+   * If the header does not fit in the scratch buffer, a buffer of the exact size is allocated for this call.
+   * @param pageHeader the page header
+   * @param to the channel to write to
+   * @param scratch the buffer to encode into, its content is overwritten
+   * @throws IOException
+   */
+  public static void writePageHeader(PageHeader pageHeader, WritableByteChannel to, ByteBuffer scratch) throws IOException {
+    scratch.clear();
+    ByteBuffer buffer = scratch;
+    try {
+      writePageHeader(pageHeader, buffer);
+    } catch (IOException e) {
+      int size = serializedSize(pageHeader);
+      if (size <= scratch.capacity()) {
+        throw e;
+      }
+      buffer = ByteBuffer.allocate(size);
+      writePageHeader(pageHeader, buffer);
+    }
+    buffer.flip();
+    writeFully(to, buffer);
+  }
+
   public static PageHeader readPageHeader(InputStream from) throws IOException {
     return read(from, new PageHeader());
   }
 
+  /**
+   * computes the number of bytes writePageHeader would write, without serializing the header anywhere
+   * @param pageHeader the page header
+   * @return its serialized size
+   * @throws IOException
+   */
+  public static int serializedSize(PageHeader pageHeader) throws IOException {
+    return (int) countSerializedBytes(pageHeader);
+  }
+
+  /**
+   * computes the number of bytes writeFileMetaData would write, without serializing the metadata anywhere
+   * @param fileMetaData the metadata
+   * @return its serialized size
+   * @throws IOException
+   */
+  public static long serializedSize(FileMetaData fileMetaData) throws IOException {
+    return countSerializedBytes(fileMetaData);
+  }
+
+  private static long countSerializedBytes(TBase<?, ?> tbase) throws IOException {
+    CountingTransport transport = new CountingTransport();
+    write(tbase, protocol(transport));
+    return transport.getCount();
+  }
+
+  /**
+   * reads a page header from the buffer without copying it.
+   * The position of the buffer is advanced to the first byte after the header.
+   * @param from the buffer to read the page header from
+   * @return the resulting page header
+   * @throws IOException
+   */
+  public static PageHeader readPageHeader(ByteBuffer from) throws IOException {
+    return read(from, new PageHeader());
+  }
+
+  /**
+   * reads a page header into an existing instance.
+   * The header and the nested headers and statistics it already references are cleared and refilled
+   * so that reading consecutive pages does not allocate a new header graph for each page.
+   * @param from the stream to read the page header from
+   * @param reuse the page header to fill
+   * @return reuse
+   * @throws IOException
+   */
+  public static PageHeader readPageHeader(InputStream from, PageHeader reuse) throws IOException {
+    return readPageHeader(protocol(from), reuse);
+  }
+
+  /**
+   * reads a page header into an existing instance without copying the buffer.
+   * The position of the buffer is advanced to the first byte after the header.
+   * @param from the buffer to read the page header from
+   * @param reuse the page header to fill
+   * @return reuse
+   * @throws IOException
+   * @see #readPageHeader(InputStream, PageHeader)
+   */
+  public static PageHeader readPageHeader(ByteBuffer from, PageHeader reuse) throws IOException {
+    return readPageHeader(protocol(from), reuse);
+  }
+
+  /**
+   * reads the consecutive pages of a region of the file (typically a column chunk) and returns their headers.
+   * The region is memory mapped and the headers are decoded in place. Page content is skipped.
+   * @param from the file to read from
+   * @param offset the offset of the first page header in the file
+   * @param length the total length of the pages (headers included)
+   * @return the page headers in the order they appear in the file
+   * @throws IOException
+   */
+  public static List<PageHeader> readPageHeaders(FileChannel from, long offset, long length) throws IOException {
+    ByteBuffer buffer = map(from, offset, length);
+    List<PageHeader> pageHeaders = new ArrayList<PageHeader>();
+    while (buffer.hasRemaining()) {
+      int headerOffset = buffer.position();
+      PageHeader pageHeader = readPageHeader(buffer);
+      int pageSize = pageHeader.getCompressed_page_size();
+      if (pageSize < 0 || pageSize > buffer.remaining()) {
+        throw new IOException("can not read page at offset " + (offset + headerOffset)
+            + ": page of size " + pageSize + " does not fit in the remaining " + buffer.remaining() + " bytes");
+      }
+      buffer.position(buffer.position() + pageSize);
+      pageHeaders.add(pageHeader);
+    }
+    return pageHeaders;
+  }
+
+  /**
+   * reads the headers of the consecutive pages in the buffer (typically a whole column chunk)
+   * into a {@link PageHeaderBatch} without materializing PageHeader objects.
+   * Header offsets are relative to the position of the buffer when called,
+   * the position of the buffer is advanced to its limit.
+   * @param chunk the buffer containing the pages
+   * @return the page boundaries and sizes
+   * @throws IOException
+   */
+  public static PageHeaderBatch readPageHeaderBatch(ByteBuffer chunk) throws IOException {
+    return readPageHeaderBatch(chunk, 0);
+  }
+
+  /**
+   * reads the headers of the consecutive pages of a region of the file (memory mapped) into a {@link PageHeaderBatch}.
+   * Header offsets are offsets in the file.
+   * @param from the file to read from
+   * @param offset the offset of the first page header in the file
+   * @param length the total length of the pages (headers included)
+   * @return the page boundaries and sizes
+   * @throws IOException
+   */
+  public static PageHeaderBatch readPageHeaderBatch(FileChannel from, long offset, long length) throws IOException {
+    return readPageHeaderBatch(map(from, offset, length), offset);
+  }
+
+  /**
+   * reads the headers of all the pages of a column chunk into a {@link PageHeaderBatch}.
+   * The chunk starts at the dictionary page if there is one, at the first data page otherwise
+   * and is total_compressed_size long.
+   * @param from the file to read from
+   * @param columnMetaData the metadata of the column chunk
+   * @return the page boundaries and sizes
+   * @throws IOException
+   */
+  public static PageHeaderBatch readPageHeaderBatch(FileChannel from, ColumnMetaData columnMetaData) throws IOException {
+    return readPageHeaderBatch(from, startingPosition(columnMetaData), columnMetaData.getTotal_compressed_size());
+  }
+
+  /**
+   * @param columnMetaData the metadata of a column chunk
+   * @return the position of the dictionary page if there is one, of the first data page otherwise
+   */
+  static long startingPosition(ColumnMetaData columnMetaData) {
+    long position = columnMetaData.getData_page_offset();
+    if (columnMetaData.isSetDictionary_page_offset()
+        && columnMetaData.getDictionary_page_offset() > 0
+        && columnMetaData.getDictionary_page_offset() < position) {
+      position = columnMetaData.getDictionary_page_offset();
+    }
+    return position;
+  }
+
+  private static PageHeaderBatch readPageHeaderBatch(ByteBuffer chunk, long baseOffset) throws IOException {
+    PageHeaderBatch batch = new PageHeaderBatch();
+    TProtocol protocol = protocol(chunk);
+    int start = chunk.position();
+    while (chunk.hasRemaining()) {
+      int headerOffset = chunk.position() - start;
+      int i = batch.add(baseOffset + headerOffset);
+      try {
+        PageHeaderReader.read(protocol, batch, i);
+      } catch (TException e) {
+        throw new IOException("can not read " + PageHeader.class + " at offset " + (baseOffset + headerOffset) + ": " + e.getMessage(), e);
+      }
+      batch.headerLengths[i] = chunk.position() - start - headerOffset;
+      int pageSize = batch.compressedPageSizes[i];
+      if (pageSize < 0 || pageSize > chunk.remaining()) {
+        throw new IOException("can not read page at offset " + (baseOffset + headerOffset)
+            + ": page of size " + pageSize + " does not fit in the remaining " + chunk.remaining() + " bytes");
+      }
+      chunk.position(chunk.position() + pageSize);
+    }
+    return batch;
+  }
+
   public static void writeFileMetaData(org.apache.parquet.format.FileMetaData fileMetadata, OutputStream to) throws IOException {
     write(fileMetadata, to);
   }
 
   public static FileMetaData readFileMetaData(InputStream from) throws IOException {
-    return read(from, new FileMetaData());
+    return readFileMetaData(from, InterningPolicy.shared());
+  }
+
+  /**
+   * reads the meta data from the stream
+   * @param from the stream to read the metadata from
+   * @param interning how the strings of the metadata are interned
+   * @return the resulting metadata
+   * @throws IOException
+   */
+  public static FileMetaData readFileMetaData(InputStream from, InterningPolicy interning) throws IOException {
+    return readFileMetaData(new TIOStreamTransport(from), interning);
+  }
+
+  /**
+   * reads the meta data from the buffer without copying it.
+   * The position of the buffer is advanced to the first byte after the metadata.
+   * @param from the buffer to read the metadata from
+   * @return the resulting metadata
+   * @throws IOException
+   */
+  public static FileMetaData readFileMetaData(ByteBuffer from) throws IOException {
+    return readFileMetaData(from, InterningPolicy.shared());
+  }
+
+  /**
+   * reads the meta data from the buffer without copying it.
+   * The position of the buffer is advanced to the first byte after the metadata.
+   * @param from the buffer to read the metadata from
+   * @param interning how the strings of the metadata are interned
+   * @return the resulting metadata
+   * @throws IOException
+   */
+  public static FileMetaData readFileMetaData(ByteBuffer from, InterningPolicy interning) throws IOException {
+    return readFileMetaData(new ByteBufferTransport(from), interning);
+  }
+
+  private static FileMetaData readFileMetaData(TTransport from, InterningPolicy interning) throws IOException {
+    return new ListCanonicalizer().canonicalize(read(protocol(from, interning.newReadInterner()), new FileMetaData()));
+  }
+
+  /**
+   * reads the meta data from a memory mapped region of the file.
+   * @param from the file to read the metadata from
+   * @param offset the offset of the metadata in the file
+   * @param length the length of the serialized metadata
+   * @return the resulting metadata
+   * @throws IOException
+   */
+  public static FileMetaData readFileMetaData(FileChannel from, long offset, int length) throws IOException {
+    return readFileMetaData(map(from, offset, length));
+  }
+
+  /**
+   * reads the meta data from the footer at the end of a parquet file.
+   * Reads are positional: the position of the channel is not used or modified.
+   * @param file the parquet file
+   * @return the resulting metadata
+   * @throws IOException if the file is not a parquet file or the footer can not be read
+   */
+  public static FileMetaData readFileMetaData(FileChannel file) throws IOException {
+    return readFileMetaData(file, InterningPolicy.shared());
+  }
+
+  /**
+   * reads the meta data from the footer at the end of a parquet file.
+   * Reads are positional: the position of the channel is not used or modified.
+   * @param file the parquet file
+   * @param interning how the strings of the metadata are interned
+   * @return the resulting metadata
+   * @throws IOException if the file is not a parquet file or the footer can not be read
+   */
+  public static FileMetaData readFileMetaData(FileChannel file, InterningPolicy interning) throws IOException {
+    return readFileMetaData(readFooter(file), interning);
+  }
+
+  /**
+   * decodes the header fields of the meta data and locates its row groups, which are decoded on demand.
+   * The buffer is retained by the result and must not be modified.
+   * Its position is advanced to the first byte after the metadata.
+   * @param from the buffer to read the metadata from
+   * @return the lazy metadata
+   * @throws IOException
+   */
+  public static LazyFileMetaData readLazyFileMetaData(ByteBuffer from) throws IOException {
+    return readLazyFileMetaData(from, InterningPolicy.shared());
+  }
+
+  /**
+   * decodes the header fields of the meta data and locates its row groups, which are decoded on demand.
+   * The buffer is retained by the result and must not be modified.
+   * Its position is advanced to the first byte after the metadata.
+   * @param from the buffer to read the metadata from
+   * @param interning how the strings of the metadata are interned, a per read table lives as long as the result
+   * @return the lazy metadata
+   * @throws IOException
+   */
+  public static LazyFileMetaData readLazyFileMetaData(ByteBuffer from, InterningPolicy interning) throws IOException {
+    return new LazyFileMetaData(from, interning.newReadInterner());
+  }
+
+  /**
+   * reads the footer at the end of a parquet file and decodes its row groups on demand.
+   * @param file the parquet file
+   * @return the lazy metadata
+   * @throws IOException if the file is not a parquet file or the footer can not be read
+   * @see #readLazyFileMetaData(ByteBuffer)
+   */
+  public static LazyFileMetaData readLazyFileMetaData(FileChannel file) throws IOException {
+    return readLazyFileMetaData(readFooter(file));
+  }
+
+  /**
+   * @return the serialized FileMetaData at the end of the file
+   */
+  static ByteBuffer readFooter(FileChannel file) throws IOException {
+    long fileLength = file.size();
+    ByteBuffer tail = ByteBuffer.allocate(FOOTER_TAIL_LENGTH);
+    readFully(file, tail, fileLength - FOOTER_TAIL_LENGTH);
+    tail.flip();
+    int footerLength = readFooterLength(tail, fileLength);
+    ByteBuffer footer = ByteBuffer.allocate(footerLength);
+    readFully(file, footer, fileLength - FOOTER_TAIL_LENGTH - footerLength);
+    footer.flip();
+    return footer;
   }
+
   /**
    * reads the meta data from the stream
    * @param from the stream to read the metadata from
@@ -84,7 +430,7 @@ public class Util {
     if (skipRowGroups) {
       readFileMetaData(from, new DefaultFileMetaDataConsumer(md), skipRowGroups);
     } else {
-      read(from, md);
+      new ListCanonicalizer().canonicalize(read(from, md));
     }
     return md;
   }
@@ -153,7 +499,134 @@ public class Util {
   }
 
   public static void readFileMetaData(InputStream from, final FileMetaDataConsumer consumer, boolean skipRowGroups) throws IOException {
+    readFileMetaData(protocol(from), consumer, skipRowGroups);
+  }
+
+  /**
+   * reads the meta data from the stream, skipping the ColumnChunks of the columns not projected
+   * @param from the stream to read the metadata from
+   * @param projection the columns to read
+   * @return the resulting metadata
+   * @throws IOException
+   * @see ColumnProjection
+   */
+  public static FileMetaData readFileMetaData(InputStream from, ColumnProjection projection) throws IOException {
+    FileMetaData md = new FileMetaData();
+    readFileMetaData(from, new DefaultFileMetaDataConsumer(md), projection);
+    return md;
+  }
+
+  /**
+   * reads the meta data from the buffer, skipping the ColumnChunks of the columns not projected.
+   * The position of the buffer is advanced to the first byte after the metadata.
+   * @param from the buffer to read the metadata from
+   * @param projection the columns to read
+   * @return the resulting metadata
+   * @throws IOException
+   * @see ColumnProjection
+   */
+  public static FileMetaData readFileMetaData(ByteBuffer from, ColumnProjection projection) throws IOException {
+    FileMetaData md = new FileMetaData();
+    readFileMetaData(protocol(from), new DefaultFileMetaDataConsumer(md), false, projection, null, null);
+    return md;
+  }
+
+  /**
+   * reads the meta data from the stream in a streaming fashion, skipping the ColumnChunks of the columns not projected
+   * @param from the stream to read the metadata from
+   * @param consumer the consumer receiving the metadata
+   * @param projection the columns to read
+   * @throws IOException
+   * @see ColumnProjection
+   */
+  public static void readFileMetaData(InputStream from, FileMetaDataConsumer consumer, ColumnProjection projection) throws IOException {
+    readFileMetaData(from, consumer, projection, null);
+  }
+
+  /**
+   * reads the meta data from the stream in a streaming fashion, skipping the row groups rejected by the filter
+   * @param from the stream to read the metadata from
+   * @param consumer the consumer receiving the metadata
+   * @param filter decides which row groups are read
+   * @throws IOException
+   * @see RowGroupFilter
+   */
+  public static void readFileMetaData(InputStream from, FileMetaDataConsumer consumer, RowGroupFilter filter) throws IOException {
+    readFileMetaData(from, consumer, null, filter);
+  }
+
+  /**
+   * reads the meta data from the stream in a streaming fashion,
+   * skipping the row groups rejected by the filter and the ColumnChunks of the columns not projected
+   * @param from the stream to read the metadata from
+   * @param consumer the consumer receiving the metadata
+   * @param projection the columns to read, null for all
+   * @param filter decides which row groups are read, null for all
+   * @throws IOException
+   */
+  public static void readFileMetaData(InputStream from, FileMetaDataConsumer consumer, ColumnProjection projection, RowGroupFilter filter) throws IOException {
+    readFileMetaData(from, consumer, projection, filter, null);
+  }
+
+  /**
+   * reads the meta data from the stream in a streaming fashion,
+   * passing to the consumer only the row groups that may contain rows matching the predicate
+   * @param from the stream to read the metadata from
+   * @param consumer the consumer receiving the metadata
+   * @param predicate the predicate evaluated against the statistics of each row group
+   * @throws IOException
+   * @see StatisticsPredicate
+   */
+  public static void readFileMetaData(InputStream from, FileMetaDataConsumer consumer, StatisticsPredicate predicate) throws IOException {
+    readFileMetaData(from, consumer, null, null, predicate);
+  }
+
+  /**
+   * reads the meta data from the stream in a streaming fashion,
+   * skipping the row groups rejected by the filter or by the predicate and the ColumnChunks of the columns not projected.
+   * The columns used by the filter and the predicate are decoded even if they are not projected.
+   * @param from the stream to read the metadata from
+   * @param consumer the consumer receiving the metadata
+   * @param projection the columns to read, null for all
+   * @param filter decides which row groups are read, null for all
+   * @param predicate the predicate evaluated against the statistics of each row group, null for all
+   * @throws IOException
+   */
+  public static void readFileMetaData(InputStream from, FileMetaDataConsumer consumer,
+      ColumnProjection projection, RowGroupFilter filter, StatisticsPredicate predicate) throws IOException {
+    readFileMetaData(from, consumer, projection, filter, predicate, InterningPolicy.shared());
+  }
+
+  /**
+   * reads the meta data from the stream in a streaming fashion
+   * @param from the stream to read the metadata from
+   * @param consumer the consumer receiving the metadata
+   * @param projection the columns to read, null for all
+   * @param filter decides which row groups are read, null for all
+   * @param predicate the predicate evaluated against the statistics of each row group, null for all
+   * @param interning how the strings of the metadata are interned
+   * @throws IOException
+   */
+  public static void readFileMetaData(InputStream from, FileMetaDataConsumer consumer,
+      ColumnProjection projection, RowGroupFilter filter, StatisticsPredicate predicate, InterningPolicy interning) throws IOException {
+    readFileMetaData(protocol(new TIOStreamTransport(from), interning.newReadInterner()), consumer, false, projection, filter, predicate);
+  }
+
+  static void readFileMetaData(TProtocol protocol, final FileMetaDataConsumer consumer, boolean skipRowGroups) throws IOException {
+    readFileMetaData(protocol, consumer, skipRowGroups, null, null, null);
+  }
+
+  static void readFileMetaData(TProtocol protocol, final FileMetaDataConsumer consumer, boolean skipRowGroups,
+      ColumnProjection projection, RowGroupFilter filter, StatisticsPredicate predicate) throws IOException {
     try {
+      final ListCanonicalizer lists = new ListCanonicalizer();
+      Consumer<RowGroup> rowGroups = new Consumer<RowGroup>() {
+        @Override
+        public void consume(RowGroup rowGroup) {
+          consumer.addRowGroup(lists.canonicalize(rowGroup));
+        }
+      };
+      final RowGroupConsumer rowGroupConsumer = new RowGroupConsumer(rowGroups, projection, filter, predicate);
       DelegatingFieldConsumer eventConsumer = fieldConsumer()
       .onField(VERSION, new I32Consumer() {
         @Override
@@ -164,6 +637,7 @@ public class Util {
         @Override
         public void consume(List<SchemaElement> schema) {
           consumer.setSchema(schema);
+          rowGroupConsumer.setSchema(schema);
         }
       })).onField(NUM_ROWS, new I64Consumer() {
         @Override
@@ -182,14 +656,10 @@ public class Util {
         }
       });
       if (!skipRowGroups) {
-        eventConsumer = eventConsumer.onField(ROW_GROUPS, listElementsOf(struct(RowGroup.class, new Consumer<RowGroup>() {
-          @Override
-          public void consume(RowGroup rowGroup) {
-            consumer.addRowGroup(rowGroup);
-          }
-        })));
+        eventConsumer = eventConsumer.onField(ROW_GROUPS, listElementsOf(
+            projection == null && filter == null && predicate == null ? struct(RowGroup.class, rowGroups) : rowGroupConsumer));
       }
-      new EventBasedThriftReader(protocol(from)).readStruct(eventConsumer);
+      new EventBasedThriftReader(protocol).readStruct(eventConsumer);
 
     } catch (TException e) {
       throw new IOException("can not read FileMetaData: " + e.getMessage(), e);
@@ -204,22 +674,118 @@ public class Util {
     return protocol(new TIOStreamTransport(from));
   }
 
-  private static InterningProtocol protocol(TIOStreamTransport t) {
-    return new InterningProtocol(new TCompactProtocol(t));
+  private static TProtocol protocol(ByteBuffer buffer) {
+    return protocol(new ByteBufferTransport(buffer));
+  }
+
+  private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+    return channel.map(MapMode.READ_ONLY, offset, length);
+  }
+
+  /**
+   * @param tail the last FOOTER_TAIL_LENGTH bytes of the file, the position is advanced past them
+   * @param fileLength the length of the file
+   * @return the length of the footer
+   * @throws IOException if the file is not a parquet file
+   */
+  static int readFooterLength(ByteBuffer tail, long fileLength) throws IOException {
+    int footerLength = (tail.get() & 0xFF)
+        | (tail.get() & 0xFF) << 8
+        | (tail.get() & 0xFF) << 16
+        | (tail.get() & 0xFF) << 24;
+    for (byte b : MAGIC) {
+      if (tail.get() != b) {
+        throw new IOException("not a parquet file: expected magic number " + new String(MAGIC, "US-ASCII") + " at the end of the file");
+      }
+    }
+    if (footerLength < 0 || footerLength > fileLength - FOOTER_TAIL_LENGTH - MAGIC.length) {
+      throw new IOException("corrupted file: footer length " + footerLength + " does not fit in a file of " + fileLength + " bytes");
+    }
+    return footerLength;
+  }
+
+  /**
+   * writes the remaining bytes of the buffer to the channel
+   */
+  static void writeFully(WritableByteChannel to, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      to.write(buffer);
+    }
+  }
+
+  /**
+   * fills the remaining space of the buffer with the bytes of the file starting at position
+   */
+  static void readFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+    if (position < 0) {
+      throw new EOFException("can not read " + buffer.remaining() + " bytes at offset " + position);
+    }
+    while (buffer.hasRemaining()) {
+      int read = file.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("reached the end of the file while reading " + buffer.remaining() + " bytes at offset " + position);
+      }
+      position += read;
+    }
+  }
+
+  static TProtocol protocol(TTransport t) {
+    return protocol(t, StringInterner.shared());
+  }
+
+  /**
+   * @param interner the interner of the strings read, null to not intern them
+   */
+  static TProtocol protocol(TTransport t, StringInterner interner) {
+    TProtocol protocol = new TCompactProtocol(t);
+    return interner == null ? protocol : new InterningProtocol(protocol, interner);
   }
 
   private static <T extends TBase<?,?>> T read(InputStream from, T tbase) throws IOException {
+    return read(protocol(from), tbase);
+  }
+
+  private static <T extends TBase<?,?>> T read(ByteBuffer from, T tbase) throws IOException {
+    return read(protocol(from), tbase);
+  }
+
+  static <T extends TBase<?,?>> T read(TProtocol protocol, T tbase) throws IOException {
     try {
-      tbase.read(protocol(from));
+      tbase.read(protocol);
       return tbase;
     } catch (TException e) {
       throw new IOException("can not read " + tbase.getClass() + ": " + e.getMessage(), e);
     }
   }
 
+  static PageHeader readPageHeader(TProtocol protocol, PageHeader reuse) throws IOException {
+    try {
+      return PageHeaderReader.read(protocol, reuse);
+    } catch (TException e) {
+      throw new IOException("can not read " + PageHeader.class + ": " + e.getMessage(), e);
+    }
+  }
+
   private static void write(TBase<?, ?> tbase, OutputStream to) throws IOException {
+    write(tbase, protocol(to));
+  }
+
+  /**
+   * writes with a protocol bound to the buffer, restoring the position of the buffer on failure
+   */
+  static void write(TBase<?, ?> tbase, ByteBuffer to, TProtocol protocol) throws IOException {
+    int position = to.position();
+    try {
+      write(tbase, protocol);
+    } catch (IOException e) {
+      to.position(position);
+      throw e;
+    }
+  }
+
+  static void write(TBase<?, ?> tbase, TProtocol protocol) throws IOException {
     try {
-      tbase.write(protocol(to));
+      tbase.write(protocol);
     } catch (TException e) {
       throw new IOException("can not write " + tbase, e);
     }
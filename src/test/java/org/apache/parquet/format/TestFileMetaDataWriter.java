@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.parquet.format;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.apache.parquet.format.TestUtil.fileMetaData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestFileMetaDataWriter {
+
+  @Test
+  public void testBuffered() throws Exception {
+    FileMetaData md = fileMetaData();
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    Util.writeFileMetaData(md, expected);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    FileMetaDataWriter writer = new FileMetaDataWriter(out, md.getVersion(), md.getSchema());
+    for (RowGroup rowGroup : md.getRow_groups()) {
+      writer.addRowGroup(rowGroup);
+    }
+    assertEquals(0, out.size());
+    writer.finish(md.getKey_value_metadata(), md.getCreated_by());
+    assertTrue(Arrays.equals(expected.toByteArray(), out.toByteArray()));
+  }
+
+  @Test
+  public void testSpilled() throws Exception {
+    FileMetaData md = fileMetaData();
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    Util.writeFileMetaData(md, expected);
+
+    File spill = File.createTempFile("TestFileMetaDataWriter", ".spill");
+    spill.deleteOnExit();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    FileMetaDataWriter writer = new FileMetaDataWriter(out, md.getVersion(), md.getSchema(), spill);
+    for (RowGroup rowGroup : md.getRow_groups()) {
+      writer.addRowGroup(rowGroup);
+    }
+    assertEquals(0, out.size());
+    writer.finish(md.getKey_value_metadata(), md.getCreated_by());
+    assertTrue(spill.length() > 0);
+    assertTrue(Arrays.equals(expected.toByteArray(), out.toByteArray()));
+  }
+
+  @Test
+  public void testDeclaredRowGroupCount() throws Exception {
+    FileMetaData md = fileMetaData();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    FileMetaDataWriter writer = new FileMetaDataWriter(out, md.getVersion(), md.getSchema(), 2);
+    int headerSize = out.size();
+    writer.addRowGroup(md.getRow_groups().get(0));
+    assertTrue(out.size() > headerSize);
+    writer.addRowGroup(md.getRow_groups().get(1));
+    try {
+      writer.addRowGroup(md.getRow_groups().get(1));
+      fail("only 2 row groups were declared");
+    } catch (IOException e) {
+      // expected
+    }
+    writer.finish(null, md.getCreated_by());
+    md.unsetKey_value_metadata();
+    assertEquals(md, Util.readFileMetaData(new ByteArrayInputStream(out.toByteArray())));
+
+    writer = new FileMetaDataWriter(new ByteArrayOutputStream(), md.getVersion(), md.getSchema(), 3);
+    writer.addRowGroup(md.getRow_groups().get(0));
+    try {
+      writer.finish(null, null);
+      fail("3 row groups were declared");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
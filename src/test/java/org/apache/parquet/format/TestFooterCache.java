@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.parquet.format;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.apache.parquet.format.TestUtil.fileMetaData;
+import static org.apache.parquet.format.TestUtil.parquetFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import org.junit.Test;
+
+public class TestFooterCache {
+
+  @Test
+  public void testHitsAndEvictions() throws Exception {
+    FileMetaData md = fileMetaData();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    Util.writeFileMetaData(md, baos);
+    long footerWeight = HeapSize.of(Util.readFileMetaData(new ByteArrayInputStream(baos.toByteArray())));
+    // decoded footers are weighed by the heap they retain
+    assertTrue(footerWeight > 5 * baos.size());
+    RandomAccessFile raf = new RandomAccessFile(parquetFile(md, 10), "r");
+    try {
+      FileChannel file = raf.getChannel();
+      // room for two footers
+      FooterCache cache = new FooterCache(2 * footerWeight + 1);
+
+      FileMetaData first = cache.readFileMetaData("/data/a.parquet", 1, file);
+      assertEquals(md, first);
+      assertSame(first, cache.readFileMetaData("/data/a.parquet", 1, file));
+      assertEquals(1, cache.getHitCount());
+      assertEquals(1, cache.getMissCount());
+      assertEquals(footerWeight, cache.getWeight());
+
+      // a modified file is a different entry
+      FileMetaData modified = cache.readFileMetaData("/data/a.parquet", 2, file);
+      assertNotSame(first, modified);
+      assertEquals(2, cache.getSize());
+      assertEquals(2 * footerWeight, cache.getWeight());
+
+      // touch the first one so that the modified one is the least recently used
+      assertSame(first, cache.readFileMetaData("/data/a.parquet", 1, file));
+      cache.readFileMetaData("/data/b.parquet", 1, file);
+      assertEquals(1, cache.getEvictionCount());
+      assertEquals(2, cache.getSize());
+      assertSame(first, cache.readFileMetaData("/data/a.parquet", 1, file));
+      assertNotSame(modified, cache.readFileMetaData("/data/a.parquet", 2, file));
+      assertEquals(3, cache.getHitCount());
+      assertEquals(4, cache.getMissCount());
+
+      cache.invalidateAll();
+      assertEquals(0, cache.getSize());
+      assertEquals(0, cache.getWeight());
+
+      // footers bigger than the budget are not cached
+      FooterCache small = new FooterCache(footerWeight - 1);
+      assertEquals(md, small.readFileMetaData("/data/a.parquet", 1, file));
+      assertEquals(0, small.getSize());
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test
+  public void testSerializedModes() throws Exception {
+    FileMetaData md = fileMetaData();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    Util.writeFileMetaData(md, baos);
+    int footerLength = baos.size();
+    RandomAccessFile raf = new RandomAccessFile(parquetFile(md, 10), "r");
+    try {
+      FileChannel file = raf.getChannel();
+      FooterCache serialized = new FooterCache(1024 * 1024, new FooterLoader(), FooterCache.Mode.SERIALIZED);
+      FileMetaData first = serialized.readFileMetaData("/data/a.parquet", 1, file);
+      FileMetaData second = serialized.readFileMetaData("/data/a.parquet", 1, file);
+      assertEquals(md, first);
+      assertEquals(md, second);
+      // each caller gets its own instance
+      assertNotSame(first, second);
+      assertEquals(1, serialized.getHitCount());
+      assertEquals(footerLength, serialized.getWeight());
+
+      FooterCache compressed = new FooterCache(1024 * 1024, new FooterLoader(), FooterCache.Mode.COMPRESSED);
+      assertEquals(md, compressed.readFileMetaData("/data/a.parquet", 1, file));
+      assertEquals(md, compressed.readFileMetaData("/data/a.parquet", 1, file));
+      assertEquals(1, compressed.getHitCount());
+      assertEquals(1, compressed.getSize());
+      assertTrue(compressed.getWeight() > 0);
+    } finally {
+      raf.close();
+    }
+  }
+}
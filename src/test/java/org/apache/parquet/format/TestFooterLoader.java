@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.parquet.format;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.apache.parquet.format.TestUtil.fileMetaData;
+import static org.apache.parquet.format.TestUtil.parquetFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.junit.Test;
+
+public class TestFooterLoader {
+
+  /**
+   * counts the reads
+   */
+  private static class CountingInput implements FooterLoader.Input {
+    private final FileChannel file;
+    int reads;
+
+    CountingInput(FileChannel file) {
+      this.file = file;
+    }
+
+    @Override
+    public long length() throws IOException {
+      return file.size();
+    }
+
+    @Override
+    public void readFully(long position, ByteBuffer buffer) throws IOException {
+      ++reads;
+      Util.readFully(file, buffer, position);
+    }
+  }
+
+  @Test
+  public void testSpeculativeTail() throws Exception {
+    FileMetaData md = fileMetaData();
+    File file = parquetFile(md, 10);
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FooterLoader loader = new FooterLoader(16, 1024 * 1024);
+
+      CountingInput first = new CountingInput(raf.getChannel());
+      assertEquals(md, loader.readFileMetaData("dataset", first));
+      assertEquals(2, first.reads);
+      assertEquals(1, loader.getExtraReadCount());
+
+      assertTrue(loader.getTailSize("dataset") > 16);
+      CountingInput second = new CountingInput(raf.getChannel());
+      assertEquals(md, loader.readFileMetaData("dataset", second));
+      assertEquals(1, second.reads);
+
+      CountingInput otherDataset = new CountingInput(raf.getChannel());
+      assertEquals(md, loader.readFileMetaData("other", otherDataset));
+      assertEquals(2, otherDataset.reads);
+
+      assertEquals(md, loader.readFileMetaData("dataset", raf.getChannel()));
+      assertEquals(4, loader.getFooterCount());
+      assertEquals(2, loader.getExtraReadCount());
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test
+  public void testTailLargerThanFile() throws Exception {
+    FileMetaData md = fileMetaData();
+    RandomAccessFile raf = new RandomAccessFile(parquetFile(md, 0), "r");
+    try {
+      FooterLoader loader = new FooterLoader();
+      CountingInput input = new CountingInput(raf.getChannel());
+      assertEquals(md, loader.readFileMetaData("dataset", input));
+      assertEquals(1, input.reads);
+    } finally {
+      raf.close();
+    }
+  }
+}
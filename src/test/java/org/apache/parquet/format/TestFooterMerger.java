@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.parquet.format;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.apache.parquet.format.TestUtil.fileMetaData;
+import static org.apache.parquet.format.TestUtil.parquetFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestFooterMerger {
+
+  @Test
+  public void testMerge() throws Exception {
+    FileMetaData first = fileMetaData();
+    first.setKey_value_metadata(asList(new KeyValue("same").setValue("v"), new KeyValue("conflict").setValue("1")));
+    FileMetaData second = fileMetaData();
+    second.setKey_value_metadata(asList(new KeyValue("conflict").setValue("2"), new KeyValue("same").setValue("v")));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    File spill = File.createTempFile("TestFooterMerger", ".spill");
+    spill.deleteOnExit();
+    FooterMerger merger = new FooterMerger(out, spill);
+    merger.add("part-0.parquet", footer(first));
+    RandomAccessFile raf = new RandomAccessFile(parquetFile(second, 10), "r");
+    try {
+      merger.add("part-1.parquet", raf.getChannel());
+    } finally {
+      raf.close();
+    }
+    assertEquals(2, merger.getFileCount());
+    assertEquals(4, merger.getRowGroupCount());
+    // the row groups are in the spill file until the summary is finished
+    assertEquals(0, out.size());
+    merger.finish("merger");
+    assertTrue(spill.length() > 0);
+
+    FileMetaData expected = merged("part-0.parquet", "part-1.parquet");
+    expected.setKey_value_metadata(asList(new KeyValue("same").setValue("v")));
+    assertEquals(expected, Util.readFileMetaData(new ByteArrayInputStream(out.toByteArray())));
+  }
+
+  @Test
+  public void testDeclaredRowGroupCount() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    FooterMerger merger = new FooterMerger(out, 4);
+    merger.add("part-0.parquet", footer(fileMetaData()));
+    // the row groups are written as they are read
+    int size = out.size();
+    assertTrue(size > 0);
+    merger.add("part-1.parquet", footer(fileMetaData()));
+    assertTrue(out.size() > size);
+    assertEquals(4, merger.getRowGroupCount());
+    merger.finish("merger");
+
+    FileMetaData expected = merged("part-0.parquet", "part-1.parquet");
+    expected.setKey_value_metadata(asList(new KeyValue("k")));
+    assertEquals(expected, Util.readFileMetaData(new ByteArrayInputStream(out.toByteArray())));
+
+    // fewer row groups than declared
+    FooterMerger incomplete = new FooterMerger(new ByteArrayOutputStream(), 4);
+    incomplete.add("part-0.parquet", footer(fileMetaData()));
+    try {
+      incomplete.finish("merger");
+      fail("2 row groups instead of 4");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private static FileMetaData merged(String... paths) {
+    List<RowGroup> rowGroups = new ArrayList<RowGroup>();
+    long numRows = 0;
+    for (String path : paths) {
+      for (RowGroup rowGroup : fileMetaData().getRow_groups()) {
+        for (ColumnChunk columnChunk : rowGroup.getColumns()) {
+          columnChunk.setFile_path(path);
+        }
+        rowGroups.add(rowGroup);
+      }
+      numRows += fileMetaData().getNum_rows();
+    }
+    FileMetaData merged = new FileMetaData(fileMetaData().getVersion(), fileMetaData().getSchema(), numRows, rowGroups);
+    merged.setCreated_by("merger");
+    return merged;
+  }
+
+  @Test
+  public void testIncompatibleSchema() throws Exception {
+    File spill = File.createTempFile("TestFooterMerger", ".spill");
+    spill.deleteOnExit();
+    FooterMerger merger = new FooterMerger(new ByteArrayOutputStream(), spill);
+    merger.add("part-0.parquet", footer(fileMetaData()));
+    FileMetaData other = fileMetaData();
+    other.setSchema(asList(new SchemaElement("bar")));
+    try {
+      merger.add("part-1.parquet", footer(other));
+      fail("the schemas are different");
+    } catch (IOException e) {
+      // expected
+    }
+    assertEquals(2, merger.getRowGroupCount());
+  }
+
+  private static ByteArrayInputStream footer(FileMetaData md) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    Util.writeFileMetaData(md, baos);
+    return new ByteArrayInputStream(baos.toByteArray());
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.parquet.format;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static org.apache.parquet.format.TestUtil.columnChunk;
+import static org.apache.parquet.format.TestUtil.fileMetaData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class TestFooterRewriter {
+
+  @Test
+  public void testUnchanged() throws Exception {
+    ByteArrayOutputStream original = new ByteArrayOutputStream();
+    Util.writeFileMetaData(fileMetaData(), original);
+    ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+    new FooterRewriter(ByteBuffer.wrap(original.toByteArray())).write(rewritten);
+    assertEquals(ByteBuffer.wrap(original.toByteArray()), ByteBuffer.wrap(rewritten.toByteArray()));
+  }
+
+  @Test
+  public void testRewrite() throws Exception {
+    FileMetaData md = fileMetaData();
+    md.setRow_groups(new ArrayList<RowGroup>(md.getRow_groups()));
+    md.addToRow_groups(new RowGroup(asList(columnChunk(4, "a"), columnChunk(5, "b")), 12, 7));
+    md.setNum_rows(17);
+    ByteArrayOutputStream original = new ByteArrayOutputStream();
+    Util.writeFileMetaData(md, original);
+
+    FooterRewriter rewriter = new FooterRewriter(ByteBuffer.wrap(original.toByteArray()));
+    assertEquals(3, rewriter.getRowGroupCount());
+    assertEquals(md.getRow_groups().get(2), rewriter.getRowGroup(2));
+    rewriter.getFileMetaData().addToKey_value_metadata(new KeyValue("added").setValue("v"));
+    rewriter.getFileMetaData().setCreated_by("rewriter");
+    rewriter.removeRowGroup(0);
+    RowGroup replacement = new RowGroup(asList(columnChunk(2, "a"), columnChunk(3, "b")), 11, 1);
+    rewriter.replaceRowGroup(2, replacement);
+    ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+    rewriter.write(rewritten);
+
+    FileMetaData expected = md.deepCopy();
+    expected.addToKey_value_metadata(new KeyValue("added").setValue("v"));
+    expected.setCreated_by("rewriter");
+    expected.setRow_groups(asList(md.getRow_groups().get(1), replacement));
+    expected.setNum_rows(6);
+    assertEquals(expected, Util.readFileMetaData(new ByteArrayInputStream(rewritten.toByteArray())));
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.apache.parquet.format.TestUtil.columnChunk;
+import static org.apache.parquet.format.TestUtil.fileMetaData;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestHeapSize {
+
+  @Test
+  public void testHeapSize() throws Exception {
+    FileMetaData md = fileMetaData();
+    long size = HeapSize.of(md);
+    assertTrue(size > 0);
+
+    // a row group sharing the lists of the first one only adds its own objects
+    FileMetaData decoded = decode(md);
+    long decodedSize = HeapSize.of(decoded);
+    RowGroup rowGroup = decoded.getRow_groups().get(0).deepCopy();
+    for (int i = 0; i < rowGroup.getColumns().size(); i++) {
+      ColumnMetaData copy = rowGroup.getColumns().get(i).getMeta_data();
+      ColumnMetaData shared = decoded.getRow_groups().get(0).getColumns().get(i).getMeta_data();
+      copy.setPath_in_schema(shared.getPath_in_schema());
+      copy.setEncodings(shared.getEncodings());
+    }
+    decoded.setRow_groups(new ArrayList<RowGroup>(decoded.getRow_groups()));
+    long withoutRowGroup = HeapSize.of(decoded);
+    decoded.addToRow_groups(rowGroup);
+    long withSharedRowGroup = HeapSize.of(decoded);
+    decoded.getRow_groups().set(2, new RowGroup(Arrays.asList(columnChunk(5, "a"), columnChunk(6, "b")), 10, 5));
+    long withOwnRowGroup = HeapSize.of(decoded);
+    assertTrue(decodedSize <= withoutRowGroup);
+    assertTrue(withSharedRowGroup > withoutRowGroup);
+    assertTrue(withOwnRowGroup > withSharedRowGroup);
+
+    // the binary statistics count their arrays
+    Statistics statistics = decoded.getRow_groups().get(0).getColumns().get(0).getMeta_data().getStatistics();
+    long before = HeapSize.of(decoded);
+    statistics.setMax(ByteBuffer.allocate(1000));
+    assertTrue(HeapSize.of(decoded) > before + 900);
+    assertEquals(HeapSize.of(decoded), HeapSize.of(decoded));
+  }
+
+  private static FileMetaData decode(FileMetaData md) throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    Util.writeFileMetaData(md, baos);
+    return Util.readFileMetaData(ByteBuffer.wrap(baos.toByteArray()));
+  }
+}
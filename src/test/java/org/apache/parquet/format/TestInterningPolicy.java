@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.parquet.format;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static org.apache.parquet.format.TestUtil.fileMetaData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class TestInterningPolicy {
+
+  @Test
+  public void testNone() throws Exception {
+    byte[] footer = footer();
+    FileMetaData md = Util.readFileMetaData(new ByteArrayInputStream(footer), InterningPolicy.none());
+    assertEquals(expected(), md);
+    assertNotSame(schemaName(md), path(md));
+  }
+
+  @Test
+  public void testPerRead() throws Exception {
+    byte[] footer = footer();
+    FileMetaData md1 = Util.readFileMetaData(new ByteArrayInputStream(footer), InterningPolicy.perRead());
+    FileMetaData md2 = Util.readFileMetaData(ByteBuffer.wrap(footer), InterningPolicy.perRead());
+    assertEquals(expected(), md1);
+    assertEquals(expected(), md2);
+    assertSame(schemaName(md1), path(md1));
+    assertSame(schemaName(md2), path(md2));
+    assertNotSame(path(md1), path(md2));
+  }
+
+  @Test
+  public void testShared() throws Exception {
+    byte[] footer = footer();
+    InterningPolicy interning = InterningPolicy.shared(StringInterner.bounded(1024));
+    FileMetaData md1 = Util.readFileMetaData(new ByteArrayInputStream(footer), interning);
+    FileMetaData md2 = Util.readLazyFileMetaData(ByteBuffer.wrap(footer), interning).toFileMetaData();
+    assertEquals(expected(), md1);
+    assertEquals(expected(), md2);
+    assertSame(schemaName(md1), path(md1));
+    assertSame(path(md1), path(md2));
+    assertSame(schemaName(md1), schemaName(md2));
+  }
+
+  private static FileMetaData expected() {
+    FileMetaData md = fileMetaData();
+    md.getSchema().get(0).setName("a");
+    return md;
+  }
+
+  private static byte[] footer() throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    Util.writeFileMetaData(expected(), baos);
+    return baos.toByteArray();
+  }
+
+  private static String schemaName(FileMetaData md) {
+    return md.getSchema().get(0).getName();
+  }
+
+  private static String path(FileMetaData md) {
+    return md.getRow_groups().get(1).getColumns().get(0).getMeta_data().getPath_in_schema().get(0);
+  }
+}
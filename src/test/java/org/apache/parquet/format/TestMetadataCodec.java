@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.parquet.format;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+import static org.apache.parquet.format.TestUtil.fileMetaData;
+import static org.apache.parquet.format.TestUtil.pageHeader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import org.junit.Test;
+
+import org.apache.parquet.format.Util.DefaultFileMetaDataConsumer;
+
+public class TestMetadataCodec {
+
+  @Test
+  public void testReuseAcrossCalls() throws Exception {
+    MetadataCodec codec = new MetadataCodec();
+    FileMetaData md = fileMetaData();
+    PageHeader ph = pageHeader();
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    codec.writePageHeader(ph, baos);
+    codec.writePageHeader(ph, baos);
+    codec.writeFileMetaData(md, baos);
+    byte[] bytes = baos.toByteArray();
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    Util.writePageHeader(ph, expected);
+    Util.writePageHeader(ph, expected);
+    Util.writeFileMetaData(md, expected);
+    assertEquals(ByteBuffer.wrap(expected.toByteArray()), ByteBuffer.wrap(bytes));
+
+    ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+    PageHeader reuse = new PageHeader();
+    assertEquals(ph, codec.readPageHeader(in));
+    assertSame(reuse, codec.readPageHeader(in, reuse));
+    assertEquals(ph, reuse);
+    assertEquals(md, codec.readFileMetaData(in));
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    assertEquals(ph, codec.readPageHeader(buffer));
+    assertEquals(ph, codec.readPageHeader(buffer, reuse));
+    assertEquals(md, codec.readFileMetaData(buffer));
+
+    FileMetaData md2 = new FileMetaData();
+    buffer.rewind();
+    codec.readPageHeader(buffer);
+    codec.readPageHeader(buffer);
+    codec.readFileMetaData(new ByteArrayInputStream(bytes, buffer.position(), bytes.length), new DefaultFileMetaDataConsumer(md2), true);
+    assertNull(md2.getRow_groups());
+    md2.setRow_groups(md.getRow_groups());
+    assertEquals(md, md2);
+  }
+
+  @Test
+  public void testUsableAfterFailure() throws Exception {
+    MetadataCodec codec = new MetadataCodec();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    codec.writeFileMetaData(fileMetaData(), baos);
+    byte[] bytes = baos.toByteArray();
+    try {
+      codec.readFileMetaData(ByteBuffer.wrap(bytes, 0, bytes.length / 2));
+      fail("truncated metadata should not be readable");
+    } catch (IOException e) {
+      // expected
+    }
+    assertEquals(fileMetaData(), codec.readFileMetaData(ByteBuffer.wrap(bytes)));
+  }
+
+  @Test
+  public void testWritePageHeaderToChannel() throws Exception {
+    MetadataCodec codec = new MetadataCodec();
+    PageHeader small = pageHeader();
+    // bigger than the initial scratch buffer
+    PageHeader big = pageHeader();
+    big.getData_page_header().getStatistics().setMax(new byte[4096]);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    WritableByteChannel channel = Channels.newChannel(baos);
+    codec.writePageHeader(small, channel);
+    codec.writePageHeader(big, channel);
+    codec.writePageHeader(small, channel);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    Util.writePageHeader(small, expected);
+    Util.writePageHeader(big, expected);
+    Util.writePageHeader(small, expected);
+    assertEquals(ByteBuffer.wrap(expected.toByteArray()), ByteBuffer.wrap(baos.toByteArray()));
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect(expected.size());
+    codec.writePageHeader(small, buffer);
+    codec.writePageHeader(big, buffer);
+    codec.writePageHeader(small, buffer);
+    buffer.flip();
+    assertEquals(ByteBuffer.wrap(expected.toByteArray()), buffer);
+  }
+}
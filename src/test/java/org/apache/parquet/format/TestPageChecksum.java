@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.parquet.format;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.apache.parquet.format.TestUtil.buffers;
+import static org.apache.parquet.format.TestUtil.pageHeader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class TestPageChecksum {
+
+  @Test
+  public void testComputeAndVerify() throws Exception {
+    byte[] check = "123456789".getBytes("US-ASCII");
+    for (ByteBuffer page : buffers(check)) {
+      // the standard check value of CRC-32
+      assertEquals(0xCBF43926, PageChecksum.compute(page));
+      assertEquals(0, page.position());
+    }
+    byte[] big = new byte[100000];
+    for (int i = 0; i < big.length; i++) {
+      big[i] = (byte) (i * 31);
+    }
+    ByteBuffer direct = ByteBuffer.allocateDirect(big.length);
+    direct.put(big).flip();
+    assertEquals(PageChecksum.compute(big, 0, big.length), PageChecksum.compute(direct));
+
+    PageHeader header = pageHeader();
+    assertFalse(PageChecksum.verify(header, direct));
+    PageChecksum.setCrc(header, direct);
+    assertTrue(PageChecksum.verify(header, direct));
+    assertTrue(PageChecksum.verify(header, big, 0, big.length));
+    big[500] ^= 1;
+    try {
+      PageChecksum.verify(header, ByteBuffer.wrap(big));
+      fail("the page is corrupted");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.parquet.format;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.apache.parquet.format.TestUtil.fileMetaData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.transport.TIOStreamTransport;
+import org.junit.Test;
+
+public class TestStringInterner {
+
+  @Test
+  public void testBounded() throws Exception {
+    StringInterner interner = StringInterner.bounded(64);
+    String a = new String("a");
+    assertSame(a, interner.intern(a));
+    assertSame(a, interner.intern(new String("a")));
+    assertNull(interner.intern(null));
+    // the least recently used strings are evicted
+    for (int i = 0; i < 100000; i++) {
+      interner.intern(String.valueOf(i));
+    }
+    String otherA = new String("a");
+    assertSame(otherA, interner.intern(otherA));
+  }
+
+  @Test
+  public void testInterningProtocol() throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    Util.writeFileMetaData(fileMetaData(), baos);
+    StringInterner interner = StringInterner.bounded(1024);
+    FileMetaData md = new FileMetaData();
+    md.read(new InterningProtocol(new TCompactProtocol(new TIOStreamTransport(new ByteArrayInputStream(baos.toByteArray()))), interner));
+    assertEquals(fileMetaData(), md);
+    String path = md.getRow_groups().get(0).getColumns().get(0).getMeta_data().getPath_in_schema().get(0);
+    assertSame(path, md.getRow_groups().get(1).getColumns().get(0).getMeta_data().getPath_in_schema().get(0));
+    assertSame(path, interner.intern(new String("a")));
+    assertNotSame(path, StringInterner.bounded(1024).intern(new String("a")));
+  }
+
+  @Test
+  public void testInternBytes() throws Exception {
+    StringInterner interner = StringInterner.bounded(64);
+    byte[] bytes = "xabcx".getBytes("UTF-8");
+    String abc = interner.intern(bytes, 1, 3);
+    assertEquals("abc", abc);
+    assertSame(abc, interner.intern(new String("abc")));
+    assertSame(abc, interner.intern("abc".getBytes("UTF-8"), 0, 3));
+    String b = new String("b");
+    assertSame(b, interner.intern(b));
+    assertSame(b, interner.intern(bytes, 2, 1));
+    assertEquals("", interner.intern(bytes, 0, 0));
+  }
+
+  @Test
+  public void testInterningProtocolFromBuffer() throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    Util.writeFileMetaData(fileMetaData(), baos);
+    StringInterner interner = StringInterner.bounded(1024);
+    FileMetaData md = new FileMetaData();
+    md.read(new InterningProtocol(new TCompactProtocol(new ByteBufferTransport(ByteBuffer.wrap(baos.toByteArray()))), interner));
+    assertEquals(fileMetaData(), md);
+    String path = md.getRow_groups().get(0).getColumns().get(0).getMeta_data().getPath_in_schema().get(0);
+    assertSame(path, md.getRow_groups().get(1).getColumns().get(0).getMeta_data().getPath_in_schema().get(0));
+    assertSame(path, interner.intern(new String("a")));
+  }
+
+  @Test
+  public void testInterningProtocolFromStream() throws Exception {
+    FileMetaData expected = fileMetaData();
+    // longer than the initial scratch buffer
+    char[] createdBy = new char[1000];
+    Arrays.fill(createdBy, 'x');
+    expected.setCreated_by(new String(createdBy));
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    Util.writeFileMetaData(expected, baos);
+    final StringInterner interner = StringInterner.bounded(1024);
+    // the strings must be interned from their bytes without being decoded first
+    StringInterner bytesOnly = new StringInterner() {
+      @Override
+      public String intern(String s) {
+        throw new AssertionError("decoded " + s);
+      }
+
+      @Override
+      public String intern(byte[] utf8, int offset, int length) {
+        return interner.intern(utf8, offset, length);
+      }
+
+      @Override
+      public InterningStats getStats() {
+        return interner.getStats();
+      }
+    };
+    InterningStats afterFirstRead = null;
+    for (int i = 0; i < 2; i++) {
+      FileMetaData md = new FileMetaData();
+      md.read(new InterningProtocol(new TCompactProtocol(new TIOStreamTransport(new ByteArrayInputStream(baos.toByteArray()))), bytesOnly));
+      assertEquals(expected, md);
+      assertSame(md.getSchema().get(0).getName(), interner.intern(new String("foo")));
+      if (afterFirstRead == null) {
+        afterFirstRead = interner.getStats();
+      }
+    }
+    // the second read only had hits
+    assertEquals(afterFirstRead.getUniqueCount(), interner.getUniqueCount());
+    assertEquals(2 * afterFirstRead.getInternCount(), interner.getInternCount());
+  }
+
+  @Test
+  public void testStats() throws Exception {
+    StringInterner interner = StringInterner.bounded(64);
+    assertEquals(0.0, interner.getHitRate());
+    interner.intern(new String("abc"));
+    interner.intern(new String("abc"));
+    interner.intern("abc".getBytes("UTF-8"), 0, 3);
+    interner.intern("d".getBytes("UTF-8"), 0, 1);
+    InterningStats stats = interner.getStats();
+    assertEquals(4, stats.getInternCount());
+    assertEquals(2, stats.getHitCount());
+    assertEquals(2, stats.getUniqueCount());
+    assertEquals(0.5, stats.getHitRate());
+    assertEquals(2 * StringInterner.sizeOf("abc"), stats.getBytesSaved());
+    assertEquals(2, stats.getSize());
+
+    StringInterner scoped = StringInterner.scoped();
+    scoped.intern(new String("abc"));
+    scoped.intern(new String("abc"));
+    assertEquals(1, scoped.getHitCount());
+    assertEquals(1, scoped.getSize());
+  }
+
+  @Test
+  public void testMXBean() throws Exception {
+    StringInterner interner = StringInterner.bounded(64);
+    interner.intern(new String("abc"));
+    interner.intern(new String("abc"));
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.apache.parquet.format:type=StringInterner,name=" + getClass().getSimpleName());
+    server.registerMBean(interner, name);
+    try {
+      assertEquals(2L, server.getAttribute(name, "InternCount"));
+      assertEquals(1L, server.getAttribute(name, "HitCount"));
+      assertEquals(0.5, server.getAttribute(name, "HitRate"));
+      assertEquals(1, server.getAttribute(name, "Size"));
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+
+  @Test
+  public void testStripes() throws Exception {
+    Set<Integer> oneChar = new HashSet<Integer>();
+    for (char c = 'a'; c <= 'z'; c++) {
+      oneChar.add(StringInterner.stripeIndex(String.valueOf(c).hashCode()));
+    }
+    // 26 names over 64 stripes
+    assertTrue(oneChar.size() > 16);
+    Set<Integer> small = new HashSet<Integer>();
+    for (int hash = 0; hash < 1024; hash++) {
+      small.add(StringInterner.stripeIndex(hash));
+    }
+    assertEquals(64, small.size());
+  }
+
+  @Test
+  public void testEvictionRemovesEncoding() throws Exception {
+    StringInterner interner = StringInterner.bounded(64);
+    byte[] a = "a".getBytes("UTF-8");
+    String first = interner.intern(a, 0, 1);
+    // one string per stripe: evict "a" through the string path only
+    for (int i = 0; i < 100000; i++) {
+      interner.intern(String.valueOf(i));
+    }
+    String second = new String("a");
+    assertSame(second, interner.intern(second));
+    // the byte path returns the new canonical instance, not the evicted one
+    assertSame(second, interner.intern(a, 0, 1));
+    assertNotSame(first, interner.intern(a, 0, 1));
+    // the encodings are evicted with their strings
+    for (int i = 0; i < 100000; i++) {
+      interner.intern(String.valueOf(i).getBytes("UTF-8"), 0, String.valueOf(i).length());
+    }
+    assertTrue(interner.getSize() <= 64);
+    assertTrue(interner.getRetainedBytes() < 64 * 300);
+  }
+
+  @Test
+  public void testRetainedBytes() throws Exception {
+    StringInterner strings = StringInterner.bounded(64);
+    strings.intern(new String("abc"));
+    StringInterner bytes = StringInterner.bounded(64);
+    bytes.intern("abc".getBytes("UTF-8"), 0, 3);
+    assertEquals(1, strings.getSize());
+    assertEquals(1, bytes.getSize());
+    assertTrue(strings.getRetainedBytes() >= StringInterner.sizeOf("abc"));
+    // the copy of the encoding is counted
+    assertTrue(bytes.getRetainedBytes() > strings.getRetainedBytes() + 16);
+  }
+}
@@ -21,11 +21,28 @@ package org.apache.parquet.format;
 import static java.util.Arrays.asList;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 import static org.apache.parquet.format.Util.readFileMetaData;
+import static org.apache.parquet.format.Util.readPageHeader;
 import static org.apache.parquet.format.Util.writeFileMetaData;
+import static org.apache.parquet.format.Util.writePageHeader;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 
@@ -77,6 +94,568 @@ public class TestUtil {
     assertEquals(md, md6);
   }
 
+  @Test
+  public void testReadFromByteBuffer() throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    FileMetaData md = fileMetaData();
+    writeFileMetaData(md, baos);
+    byte[] footer = baos.toByteArray();
+    assertEquals(md, readFileMetaData(ByteBuffer.wrap(footer)));
+    ByteBuffer direct = ByteBuffer.allocateDirect(footer.length);
+    direct.put(footer).flip();
+    assertEquals(md, readFileMetaData(direct));
+    assertEquals(footer.length, direct.position());
+
+    baos = new ByteArrayOutputStream();
+    PageHeader ph = pageHeader();
+    writePageHeader(ph, baos);
+    int headerLength = baos.size();
+    baos.write(new byte[] {1, 2, 3});
+    for (ByteBuffer buffer : buffers(baos.toByteArray())) {
+      assertEquals(ph, readPageHeader(buffer));
+      assertEquals(headerLength, buffer.position());
+      assertEquals(1, buffer.get());
+    }
+  }
+
+  @Test
+  public void testReadFromFileChannel() throws Exception {
+    PageHeader dictionaryPage = new PageHeader(PageType.DICTIONARY_PAGE, 3, 2);
+    dictionaryPage.setDictionary_page_header(new DictionaryPageHeader(1, Encoding.PLAIN_DICTIONARY));
+    PageHeader dataPage = pageHeader().setCompressed_page_size(4);
+    FileMetaData md = fileMetaData();
+
+    File file = File.createTempFile("TestUtil", ".parquet");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    out.write(new byte[] {'P', 'A', 'R', '1'});
+    writePageHeader(dictionaryPage, out);
+    out.write(new byte[2]);
+    writePageHeader(dataPage, out);
+    out.write(new byte[4]);
+    long footerOffset = out.getChannel().position();
+    writeFileMetaData(md, out);
+    int footerLength = (int) (out.getChannel().position() - footerOffset);
+    out.close();
+
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      assertEquals(md, readFileMetaData(channel, footerOffset, footerLength));
+      List<PageHeader> pageHeaders = Util.readPageHeaders(channel, 4, footerOffset - 4);
+      assertEquals(asList(dictionaryPage, dataPage), pageHeaders);
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test
+  public void testReadPageHeaderReuse() throws Exception {
+    PageHeader v1 = pageHeader();
+    v1.setCrc(12);
+    PageHeader v2 = new PageHeader(PageType.DATA_PAGE_V2, 20, 10);
+    v2.setData_page_header_v2(new DataPageHeaderV2(3, 1, 2, Encoding.RLE_DICTIONARY, 4, 5));
+    v2.getData_page_header_v2().setStatistics(new Statistics().setDistinct_count(2).setMax(new byte[] {7}));
+    PageHeader v2Compressed = v2.deepCopy().setUncompressed_page_size(25);
+    v2Compressed.getData_page_header_v2().setIs_compressed(false).getStatistics().unsetMax();
+    PageHeader dictionary = new PageHeader(PageType.DICTIONARY_PAGE, 3, 2);
+    dictionary.setDictionary_page_header(new DictionaryPageHeader(1, Encoding.PLAIN_DICTIONARY).setIs_sorted(true));
+    PageHeader index = new PageHeader(PageType.INDEX_PAGE, 1, 1);
+    index.setIndex_page_header(new IndexPageHeader());
+
+    PageHeader[] headers = { v1, v2, v2Compressed, dictionary, v1, v1, index, v2 };
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    for (PageHeader header : headers) {
+      writePageHeader(header, baos);
+    }
+
+    PageHeader reuse = new PageHeader();
+    ByteArrayInputStream in = in(baos);
+    DataPageHeader previousV1 = null;
+    DataPageHeaderV2 previousV2 = null;
+    for (PageHeader header : headers) {
+      assertSame(reuse, readPageHeader(in, reuse));
+      assertEquals(header, reuse);
+      // nested headers are reused between consecutive pages of the same type
+      if (previousV1 != null && reuse.isSetData_page_header()) {
+        assertSame(previousV1, reuse.getData_page_header());
+      }
+      if (previousV2 != null && reuse.isSetData_page_header_v2()) {
+        assertSame(previousV2, reuse.getData_page_header_v2());
+        assertSame(previousV2.getStatistics(), reuse.getData_page_header_v2().getStatistics());
+      }
+      previousV1 = reuse.getData_page_header();
+      previousV2 = reuse.getData_page_header_v2();
+    }
+    assertEquals(0, in.available());
+
+    for (ByteBuffer buffer : buffers(baos.toByteArray())) {
+      for (PageHeader header : headers) {
+        assertEquals(header, readPageHeader(buffer, reuse));
+      }
+      assertEquals(0, buffer.remaining());
+    }
+  }
+
+  @Test
+  public void testReadPageHeaderBatch() throws Exception {
+    PageHeader dictionary = new PageHeader(PageType.DICTIONARY_PAGE, 3, 2);
+    dictionary.setDictionary_page_header(new DictionaryPageHeader(1, Encoding.PLAIN_DICTIONARY));
+    PageHeader v1 = pageHeader().setCompressed_page_size(4);
+    PageHeader v2 = new PageHeader(PageType.DATA_PAGE_V2, 20, 3);
+    v2.setData_page_header_v2(new DataPageHeaderV2(7, 1, 2, Encoding.RLE_DICTIONARY, 4, 5));
+    v2.getData_page_header_v2().setStatistics(new Statistics().setMax(new byte[] {7}));
+    PageHeader index = new PageHeader(PageType.INDEX_PAGE, 1, 1);
+    index.setIndex_page_header(new IndexPageHeader());
+    PageHeader[] headers = { dictionary, v1, v2, index };
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    baos.write(new byte[] {'P', 'A', 'R', '1'});
+    long[] offsets = new long[headers.length];
+    int[] lengths = new int[headers.length];
+    for (int i = 0; i < headers.length; i++) {
+      offsets[i] = baos.size();
+      writePageHeader(headers[i], baos);
+      lengths[i] = (int) (baos.size() - offsets[i]);
+      baos.write(new byte[headers[i].getCompressed_page_size()]);
+    }
+    int chunkLength = baos.size() - 4;
+    baos.write(new byte[] {'P', 'A', 'R', '1'});
+
+    ByteBuffer chunk = ByteBuffer.wrap(baos.toByteArray(), 4, chunkLength);
+    PageHeaderBatch batch = Util.readPageHeaderBatch(chunk);
+    assertEquals(4 + chunkLength, chunk.position());
+    assertEquals(headers.length, batch.size());
+    for (int i = 0; i < headers.length; i++) {
+      assertEquals(offsets[i] - 4, batch.getHeaderOffset(i));
+      assertEquals(lengths[i], batch.getHeaderLength(i));
+      assertEquals(offsets[i] - 4 + lengths[i], batch.getPageOffset(i));
+      assertEquals(headers[i].getType(), batch.getPageType(i));
+      assertEquals(headers[i].getUncompressed_page_size(), batch.getUncompressedPageSize(i));
+      assertEquals(headers[i].getCompressed_page_size(), batch.getCompressedPageSize(i));
+    }
+    assertEquals(Encoding.PLAIN_DICTIONARY, batch.getEncoding(0));
+    assertEquals(Encoding.PLAIN, batch.getEncoding(1));
+    assertEquals(Encoding.RLE_DICTIONARY, batch.getEncoding(2));
+    assertNull(batch.getEncoding(3));
+    assertEquals(1, batch.getNumValues(0));
+    assertEquals(5, batch.getNumValues(1));
+    assertEquals(7, batch.getNumValues(2));
+    assertEquals(-1, batch.getNumValues(3));
+
+    File file = File.createTempFile("TestUtil", ".parquet");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    baos.writeTo(out);
+    out.close();
+    ColumnMetaData columnMetaData = new ColumnMetaData(
+        Type.INT32, asList(Encoding.PLAIN), asList("a"), CompressionCodec.UNCOMPRESSED,
+        13, 0, chunkLength, offsets[1]);
+    columnMetaData.setDictionary_page_offset(4);
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      batch = Util.readPageHeaderBatch(raf.getChannel(), columnMetaData);
+    } finally {
+      raf.close();
+    }
+    assertEquals(headers.length, batch.size());
+    for (int i = 0; i < headers.length; i++) {
+      assertEquals(offsets[i], batch.getHeaderOffset(i));
+      assertEquals(lengths[i], batch.getHeaderLength(i));
+    }
+  }
+
+  @Test
+  public void testReadFooterFromFile() throws Exception {
+    FileMetaData md = fileMetaData();
+    File file = parquetFile(md, 100);
+    File notParquet = File.createTempFile("TestUtil", ".txt");
+    notParquet.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(notParquet);
+    out.write(new byte[] {0, 0, 0, 0, 'P', 'A', 'R', '2'});
+    out.close();
+
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    RandomAccessFile rafNotParquet = new RandomAccessFile(notParquet, "r");
+    try {
+      assertEquals(md, readFileMetaData(raf.getChannel()));
+      assertEquals(md, readFileMetaData(raf.getChannel()));
+      assertEquals(0, raf.getChannel().position());
+      try {
+        readFileMetaData(rafNotParquet.getChannel());
+        fail("not a parquet file");
+      } catch (IOException e) {
+        // expected
+      }
+    } finally {
+      raf.close();
+      rafNotParquet.close();
+    }
+  }
+
+  /**
+   * @return a file containing the magic number, dataLength bytes and the footer
+   */
+  static File parquetFile(FileMetaData md, int dataLength) throws IOException {
+    File file = File.createTempFile("TestUtil", ".parquet");
+    file.deleteOnExit();
+    ByteArrayOutputStream footer = new ByteArrayOutputStream();
+    writeFileMetaData(md, footer);
+    int footerLength = footer.size();
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(Util.MAGIC);
+      out.write(new byte[dataLength]);
+      footer.writeTo(out);
+      out.write(new byte[] {
+          (byte) footerLength, (byte) (footerLength >>> 8), (byte) (footerLength >>> 16), (byte) (footerLength >>> 24) });
+      out.write(Util.MAGIC);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  @Test
+  public void testReadFileMetaDataWithProjection() throws Exception {
+    List<SchemaElement> schema = asList(
+        new SchemaElement("root").setNum_children(3),
+        new SchemaElement("a").setType(Type.INT32),
+        new SchemaElement("g").setNum_children(2),
+        new SchemaElement("x").setType(Type.INT64),
+        new SchemaElement("y").setType(Type.BYTE_ARRAY),
+        new SchemaElement("b").setType(Type.DOUBLE));
+    List<List<String>> paths = asList(asList("a"), asList("g", "x"), asList("g", "y"), asList("b"));
+    assertEquals(paths, ColumnProjection.leafPaths(schema));
+    List<RowGroup> rowGroups = new ArrayList<RowGroup>();
+    for (int i = 0; i < 3; i++) {
+      List<ColumnChunk> columns = new ArrayList<ColumnChunk>();
+      for (List<String> path : paths) {
+        ColumnChunk columnChunk = columnChunk(100 * i + columns.size(), path.get(path.size() - 1));
+        columnChunk.getMeta_data().setPath_in_schema(path);
+        columns.add(columnChunk);
+      }
+      rowGroups.add(new RowGroup(columns, 100, 10).setSorting_columns(asList(new SortingColumn(1, true, false))));
+    }
+    FileMetaData md = new FileMetaData(1, schema, 30, rowGroups);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeFileMetaData(md, baos);
+
+    FileMetaData projected = readFileMetaData(in(baos), ColumnProjection.paths(asList(asList("g"), asList("b"), asList("z"))));
+    assertEquals(md.getSchema(), projected.getSchema());
+    assertEquals(3, projected.getRow_groupsSize());
+    for (int i = 0; i < 3; i++) {
+      RowGroup expected = md.getRow_groups().get(i).deepCopy();
+      expected.setColumns(expected.getColumns().subList(1, 4));
+      assertEquals(expected, projected.getRow_groups().get(i));
+    }
+
+    projected = readFileMetaData(ByteBuffer.wrap(baos.toByteArray()), ColumnProjection.leafIndexes(0, 3));
+    for (int i = 0; i < 3; i++) {
+      List<ColumnChunk> columns = md.getRow_groups().get(i).getColumns();
+      assertEquals(asList(columns.get(0), columns.get(3)), projected.getRow_groups().get(i).getColumns());
+    }
+
+    projected = readFileMetaData(in(baos), ColumnProjection.leafIndexes());
+    assertEquals(0, projected.getRow_groups().get(0).getColumnsSize());
+    projected.getRow_groups().get(0).setColumns(md.getRow_groups().get(0).getColumns());
+    assertEquals(md.getRow_groups().get(0), projected.getRow_groups().get(0));
+  }
+
+  @Test
+  public void testReadFileMetaDataWithRowGroupFilter() throws Exception {
+    FileMetaData md = fileMetaData();
+    md.getRow_groups().get(1).getColumns().get(0).getMeta_data().setDictionary_page_offset(5);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeFileMetaData(md, baos);
+    // the row groups start at 4 and 5
+    FileMetaData first = new FileMetaData();
+    readFileMetaData(in(baos), new DefaultFileMetaDataConsumer(first), RowGroupFilter.startingIn(0, 5));
+    assertEquals(asList(md.getRow_groups().get(0)), first.getRow_groups());
+    FileMetaData second = new FileMetaData();
+    readFileMetaData(in(baos), new DefaultFileMetaDataConsumer(second), RowGroupFilter.startingIn(5, 10));
+    assertEquals(asList(md.getRow_groups().get(1)), second.getRow_groups());
+    FileMetaData none = new FileMetaData();
+    readFileMetaData(in(baos), new DefaultFileMetaDataConsumer(none), RowGroupFilter.startingIn(10, 20));
+    assertNull(none.getRow_groups());
+    none.setRow_groups(md.getRow_groups());
+    assertEquals(md, none);
+
+    // the filter sees the first column even when it is not projected
+    final List<Integer> seen = new ArrayList<Integer>();
+    FileMetaData projected = new FileMetaData();
+    readFileMetaData(in(baos), new DefaultFileMetaDataConsumer(projected), ColumnProjection.leafIndexes(1), new RowGroupFilter() {
+      @Override
+      public boolean keep(int rowGroupIndex, ColumnChunk firstColumn) {
+        seen.add(rowGroupIndex);
+        return getStartingPosition(firstColumn) == 5;
+      }
+    });
+    assertEquals(asList(0, 1), seen);
+    assertEquals(1, projected.getRow_groupsSize());
+    assertEquals(asList(md.getRow_groups().get(1).getColumns().get(1)), projected.getRow_groups().get(0).getColumns());
+  }
+
+  @Test
+  public void testReadFileMetaDataWithStatisticsPredicate() throws Exception {
+    List<SchemaElement> schema = asList(
+        new SchemaElement("root").setNum_children(2),
+        new SchemaElement("a").setType(Type.INT32),
+        new SchemaElement("s").setType(Type.BYTE_ARRAY));
+    List<RowGroup> rowGroups = new ArrayList<RowGroup>();
+    for (int i = 0; i < 3; i++) {
+      // a is in [10 * i, 10 * i + 5], all null in the last row group
+      ColumnChunk a = columnChunk(100 * i, "a");
+      a.getMeta_data().getStatistics()
+          .setMin(new byte[] {(byte) (10 * i), 0, 0, 0})
+          .setMax(new byte[] {(byte) (10 * i + 5), 0, 0, 0})
+          .setNull_count(i == 2 ? 5 : 0);
+      ColumnChunk s = columnChunk(100 * i + 1, "s");
+      s.getMeta_data().setType(Type.BYTE_ARRAY);
+      rowGroups.add(new RowGroup(asList(a, s), 100, i));
+    }
+    FileMetaData md = new FileMetaData(1, schema, 15, rowGroups);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeFileMetaData(md, baos);
+
+    List<String> a = asList("a");
+    List<String> s = asList("s");
+    assertEquals(asList(0L), keptRowGroups(baos, StatisticsPredicate.eq(a, 3)));
+    assertEquals(asList(1L), keptRowGroups(baos, StatisticsPredicate.eq(a, 10L)));
+    assertEquals(asList(), keptRowGroups(baos, StatisticsPredicate.eq(a, 7)));
+    assertEquals(asList(0L), keptRowGroups(baos, StatisticsPredicate.lt(a, 10)));
+    assertEquals(asList(0L, 1L), keptRowGroups(baos, StatisticsPredicate.lt(a, 11)));
+    assertEquals(asList(1L), keptRowGroups(baos, StatisticsPredicate.gt(a, 5)));
+    assertEquals(asList(0L, 1L), keptRowGroups(baos, StatisticsPredicate.between(a, 5, 10)));
+    assertEquals(asList(), keptRowGroups(baos, StatisticsPredicate.between(a, 6, 9)));
+    assertEquals(asList(0L, 1L), keptRowGroups(baos, StatisticsPredicate.in(a, asList(2, 12))));
+    assertEquals(asList(2L), keptRowGroups(baos, StatisticsPredicate.isNull(a)));
+    assertEquals(asList(), keptRowGroups(baos, StatisticsPredicate.and(StatisticsPredicate.lt(a, 5), StatisticsPredicate.gt(a, 10))));
+    assertEquals(asList(0L, 1L), keptRowGroups(baos, StatisticsPredicate.or(StatisticsPredicate.lt(a, 5), StatisticsPredicate.gt(a, 10))));
+    // values of another type and statistics of unsupported types can only use the null count
+    assertEquals(asList(0L, 1L), keptRowGroups(baos, StatisticsPredicate.eq(a, "x")));
+    assertEquals(asList(0L, 1L, 2L), keptRowGroups(baos, StatisticsPredicate.eq(s, "x")));
+    // neither can missing columns
+    assertEquals(asList(0L, 1L, 2L), keptRowGroups(baos, StatisticsPredicate.eq(asList("z"), 7)));
+
+    // the predicate column does not need to be projected
+    FileMetaData projected = new FileMetaData();
+    readFileMetaData(in(baos), new DefaultFileMetaDataConsumer(projected),
+        ColumnProjection.paths(asList(s)), null, StatisticsPredicate.gt(a, 12));
+    assertEquals(1, projected.getRow_groupsSize());
+    assertEquals(asList(md.getRow_groups().get(1).getColumns().get(1)), projected.getRow_groups().get(0).getColumns());
+  }
+
+  private List<Long> keptRowGroups(ByteArrayOutputStream baos, StatisticsPredicate predicate) throws IOException {
+    FileMetaData md = new FileMetaData();
+    readFileMetaData(in(baos), new DefaultFileMetaDataConsumer(md), predicate);
+    List<Long> kept = new ArrayList<Long>();
+    if (md.isSetRow_groups()) {
+      for (RowGroup rowGroup : md.getRow_groups()) {
+        // num_rows identifies the row group
+        kept.add(rowGroup.getNum_rows());
+      }
+    }
+    return kept;
+  }
+
+  @Test
+  public void testReadLazyFileMetaData() throws Exception {
+    FileMetaData md = fileMetaData();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeFileMetaData(md, baos);
+    int footerLength = baos.size();
+    baos.write(new byte[] {1, 2, 3});
+    FileMetaData header = md.deepCopy();
+    header.unsetRow_groups();
+    for (ByteBuffer buffer : buffers(baos.toByteArray())) {
+      LazyFileMetaData lazy = Util.readLazyFileMetaData(buffer);
+      assertEquals(footerLength, buffer.position());
+      assertEquals(header, lazy.getFileMetaData());
+      assertEquals(2, lazy.getRowGroupCount());
+      assertEquals(md.getRow_groups().get(1), lazy.getRowGroup(1));
+      assertEquals(md.getRow_groups().get(0), lazy.getRowGroup(0));
+      assertEquals(md, lazy.toFileMetaData());
+      try {
+        lazy.getRowGroup(2);
+        fail("there are only 2 row groups");
+      } catch (IndexOutOfBoundsException e) {
+        // expected
+      }
+    }
+
+    RandomAccessFile raf = new RandomAccessFile(parquetFile(md, 10), "r");
+    try {
+      assertEquals(md, Util.readLazyFileMetaData(raf.getChannel()).toFileMetaData());
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test
+  public void testReadLazyFileMetaDataInParallel() throws Exception {
+    FileMetaData md = fileMetaData();
+    List<RowGroup> rowGroups = new ArrayList<RowGroup>();
+    for (int i = 0; i < 2000; i++) {
+      List<ColumnChunk> columns = new ArrayList<ColumnChunk>();
+      for (int j = 0; j < 20; j++) {
+        columns.add(columnChunk(i * 1000 + j, "c" + j));
+      }
+      rowGroups.add(new RowGroup(columns, i, 5));
+    }
+    md.setRow_groups(rowGroups);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeFileMetaData(md, baos);
+    assertTrue(baos.size() > 1024 * 1024);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      LazyFileMetaData lazy = Util.readLazyFileMetaData(ByteBuffer.wrap(baos.toByteArray()));
+      assertEquals(md, lazy.toFileMetaData(executor));
+      // small footers are decoded in the calling thread
+      baos.reset();
+      writeFileMetaData(fileMetaData(), baos);
+      assertEquals(fileMetaData(), Util.readLazyFileMetaData(ByteBuffer.wrap(baos.toByteArray())).toFileMetaData(executor));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testSerializedSize() throws Exception {
+    PageHeader v2 = new PageHeader(PageType.DATA_PAGE_V2, 20, 10);
+    v2.setData_page_header_v2(new DataPageHeaderV2(3, 1, 2, Encoding.RLE_DICTIONARY, 4, 5));
+    v2.getData_page_header_v2().setStatistics(new Statistics().setMax(new byte[300]));
+    for (PageHeader pageHeader : asList(pageHeader(), v2, pageHeader().setCrc(-1))) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      writePageHeader(pageHeader, baos);
+      assertEquals(baos.size(), Util.serializedSize(pageHeader));
+    }
+    FileMetaData md = fileMetaData();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeFileMetaData(md, baos);
+    assertEquals(baos.size(), Util.serializedSize(md));
+  }
+
+  @Test
+  public void testWritePageHeaderToBuffer() throws Exception {
+    PageHeader ph = pageHeader();
+    int size = Util.serializedSize(ph);
+    for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(size + 1), ByteBuffer.allocateDirect(size + 1) }) {
+      buffer.put((byte) 7);
+      Util.writePageHeader(ph, buffer);
+      assertEquals(size + 1, buffer.position());
+      buffer.flip();
+      assertEquals(7, buffer.get());
+      assertEquals(ph, readPageHeader(buffer));
+      // the position is unchanged when the header does not fit
+      buffer.clear().position(2);
+      try {
+        Util.writePageHeader(ph, buffer);
+        fail("the header does not fit");
+      } catch (IOException e) {
+        assertEquals(2, buffer.position());
+      }
+    }
+
+    // the scratch buffer is too small for the second header
+    ByteBuffer scratch = ByteBuffer.allocateDirect(size);
+    PageHeader big = pageHeader();
+    big.getData_page_header().getStatistics().setMax(new byte[100]);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    WritableByteChannel channel = Channels.newChannel(baos);
+    Util.writePageHeader(ph, channel, scratch);
+    Util.writePageHeader(big, channel, scratch);
+    ByteArrayInputStream in = in(baos);
+    assertEquals(ph, readPageHeader(in));
+    assertEquals(big, readPageHeader(in));
+    assertEquals(0, in.available());
+  }
+
+  @Test
+  public void testListsSharedAcrossRowGroups() throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeFileMetaData(fileMetaData(), baos);
+    List<FileMetaData> reads = new ArrayList<FileMetaData>();
+    reads.add(readFileMetaData(in(baos)));
+    reads.add(readFileMetaData(ByteBuffer.wrap(baos.toByteArray())));
+    reads.add(readFileMetaData(in(baos), ColumnProjection.leafIndexes(0, 1)));
+    reads.add(Util.readLazyFileMetaData(ByteBuffer.wrap(baos.toByteArray())).toFileMetaData());
+    MetadataCodec codec = new MetadataCodec();
+    reads.add(codec.readFileMetaData(in(baos)));
+    reads.add(codec.readFileMetaData(ByteBuffer.wrap(baos.toByteArray())));
+    for (FileMetaData md : reads) {
+      assertEquals(fileMetaData(), md);
+      ColumnMetaData a0 = md.getRow_groups().get(0).getColumns().get(0).getMeta_data();
+      ColumnMetaData b0 = md.getRow_groups().get(0).getColumns().get(1).getMeta_data();
+      ColumnMetaData a1 = md.getRow_groups().get(1).getColumns().get(0).getMeta_data();
+      assertSame(a0.getPath_in_schema(), a1.getPath_in_schema());
+      assertSame(a0.getEncodings(), a1.getEncodings());
+      assertSame(a0.getEncodings(), b0.getEncodings());
+      assertEquals(asList("b"), b0.getPath_in_schema());
+      try {
+        a0.getPath_in_schema().add("c");
+        fail("shared lists are unmodifiable");
+      } catch (UnsupportedOperationException e) {
+        // expected
+      }
+    }
+  }
+
+  static FileMetaData fileMetaData() {
+    FileMetaData md = new FileMetaData(
+        1,
+        asList(new SchemaElement("foo")),
+        10,
+        asList(
+            new RowGroup(
+                asList(columnChunk(0, "a"), columnChunk(1, "b")),
+                10,
+                5),
+            new RowGroup(
+                asList(columnChunk(2, "a"), columnChunk(3, "b")),
+                11,
+                5)
+        )
+    );
+    md.setCreated_by("parquet-format test");
+    md.addToKey_value_metadata(new KeyValue("k"));
+    return md;
+  }
+
+  static ColumnChunk columnChunk(long fileOffset, String path) {
+    ColumnChunk columnChunk = new ColumnChunk(fileOffset);
+    columnChunk.setMeta_data(new ColumnMetaData(
+        Type.INT32,
+        asList(Encoding.PLAIN, Encoding.RLE),
+        asList(path),
+        CompressionCodec.SNAPPY,
+        5, 100, 50, fileOffset + 4));
+    columnChunk.getMeta_data().setStatistics(new Statistics()
+        .setMin(new byte[] {0, 0, 0, 0})
+        .setMax(new byte[] {1, 0, 0, 0})
+        .setNull_count(0));
+    return columnChunk;
+  }
+
+  static PageHeader pageHeader() {
+    PageHeader ph = new PageHeader(PageType.DATA_PAGE, 100, 50);
+    ph.setData_page_header(new DataPageHeader(5, Encoding.PLAIN, Encoding.RLE, Encoding.RLE));
+    ph.getData_page_header().setStatistics(new Statistics().setNull_count(1).setMin(new byte[] {42}));
+    return ph;
+  }
+
+  static ByteBuffer[] buffers(byte[] bytes) {
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    byte[] padded = new byte[bytes.length + 2];
+    System.arraycopy(bytes, 0, padded, 1, bytes.length);
+    return new ByteBuffer[] {
+        ByteBuffer.wrap(bytes),
+        ByteBuffer.wrap(padded, 1, bytes.length).slice(),
+        ByteBuffer.wrap(bytes).asReadOnlyBuffer(),
+        direct };
+  }
+
   private ByteArrayInputStream in(ByteArrayOutputStream baos) {
     return new ByteArrayInputStream(baos.toByteArray());
   }